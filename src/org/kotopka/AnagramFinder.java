@@ -2,19 +2,46 @@ package org.kotopka;
 
 import org.kotopka.anagram.Anagram;
 import org.kotopka.anagram.AnagramFactory;
+import org.kotopka.anagram.AnagramScorer;
+import org.kotopka.anagram.CancellationToken;
+import org.kotopka.anagram.RankedAnagram;
+import org.kotopka.anagram.SearchLimit;
 import org.kotopka.parser.Parser;
 import org.kotopka.parser.ParserFactory;
 import org.kotopka.parser.Switch;
 import org.kotopka.dictionary.Dictionary;
+import org.kotopka.dictionary.DictionaryCompiler;
 import org.kotopka.dictionary.DictionaryFactory;
+import org.kotopka.output.ResultWriter;
+import org.kotopka.output.ResultWriterFactory;
 
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Set;
 
 public class AnagramFinder {
 
     private static final String NEWLINE = System.lineSeparator();
+    private static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+    private static final CancellationToken cancellationToken = new CancellationToken();
+    private static final Writer out = newStandardOutputWriter();
+    private static volatile boolean outputClosed;
     private static volatile boolean anagramThreadIsRunning;
+    private static boolean printState;
+    private static long anagramCount;
+
+    /**
+     * {@code newStandardOutputWriter()} - Creates a large buffered {@code Writer} straight on standard output. Unlike
+     * {@code System.out} it neither flushes every line nor swallows errors, so a closed pipe shows up as an
+     * {@code IOException} on the next write that reaches the stream.
+     * @return the {@code Writer}
+     */
+    static Writer newStandardOutputWriter() {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(FileDescriptor.out),
+                StandardCharsets.UTF_8), OUTPUT_BUFFER_SIZE);
+    }
 
     private static void findAndPrintSubWords(Anagram anagram, String word) {
         Set<String> allSubWords = anagram.findAllValidSubWordsAsSet(word);
@@ -23,25 +50,217 @@ public class AnagramFinder {
             System.out.println("No sub-words of \"" + word + "\" found");
         } else {
             System.out.println("Valid sub-words of \"" + word + "\" found: " + allSubWords.size());
-            allSubWords.forEach(System.out::println);
+            System.out.flush();
+            allSubWords.forEach(AnagramFinder::printLine);
+            flushOutput();
         }
     }
 
-    private static void findAndPrintAnagrams(Anagram anagram, String word) {
+    private static void findAndPrintAnagrams(Anagram anagram, String word, boolean sorted) {
+        long startTime = System.currentTimeMillis();
+        SearchLimit limit = anagram.newSearchLimit();
+
+        // sorting needs every anagram first, otherwise they go out as soon as they're found
+        if (sorted)
+            anagram.findMultipleWordAnagramsOf(word, limit).forEach(foundAnagram -> printAnagram(word, foundAnagram));
+        else
+            anagram.findMultipleWordAnagramsOf(word, foundAnagram -> printAnagram(word, foundAnagram), limit);
+
+        long endTime = System.currentTimeMillis();
+
+        anagramThreadIsRunning = false;
+        flushOutput();
+
+        if (anagramCount == 0)
+            System.out.println(NEWLINE + "No anagrams of \"" + word + "\" found");
+        else
+            System.out.println("Anagrams found: " + anagramCount);
+
+        printIfStoppedEarly(limit);
+
+        System.out.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+        printSubWordCacheCounters(anagram);
+    }
+
+    private static void findAndPrintFactorizedAnagrams(Anagram anagram, String word) {
         long startTime = System.currentTimeMillis();
-        List<String> allAnagrams = anagram.findMultipleWordAnagramsOf(word);
+        BigInteger[] phraseCount = { BigInteger.ZERO };
+        SearchLimit limit = anagram.newSearchLimit();
+
+        anagram.findFactorizedAnagramsOf(word, foundAnagram -> {
+            phraseCount[0] = phraseCount[0].add(foundAnagram.count());
+            printAnagram(word, foundAnagram.toString());
+        }, limit);
+
         long endTime = System.currentTimeMillis();
 
         anagramThreadIsRunning = false;
+        flushOutput();
 
-        if (allAnagrams.isEmpty()) {
+        if (anagramCount == 0)
+            System.out.println(NEWLINE + "No anagrams of \"" + word + "\" found");
+        else
+            System.out.println("Factorized anagrams found: " + anagramCount + " (" + phraseCount[0] + " phrases)");
+
+        printIfStoppedEarly(limit);
+
+        System.out.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+        printSubWordCacheCounters(anagram);
+    }
+
+    private static void findAndPrintTopAnagrams(Anagram anagram, String word, int k, AnagramScorer scorer) {
+        long startTime = System.currentTimeMillis();
+        SearchLimit limit = anagram.newSearchLimit();
+        List<RankedAnagram> topAnagrams = anagram.findTopAnagramsOf(word, k, scorer, limit);
+        long endTime = System.currentTimeMillis();
+
+        anagramThreadIsRunning = false;
+
+        if (topAnagrams.isEmpty()) {
             System.out.println(NEWLINE + "No anagrams of \"" + word + "\" found");
         } else {
-            System.out.println(NEWLINE + "Anagrams of \"" + word + "\" found: " + allAnagrams.size());
-            allAnagrams.forEach(System.out::println);
+            System.out.println(NEWLINE + "Top " + topAnagrams.size() + " anagrams of \"" + word + "\" found:");
+            System.out.flush();
+            topAnagrams.forEach(ranked -> printLine(ranked.toString()));
+            flushOutput();
+        }
+
+        printIfStoppedEarly(limit);
+
+        System.out.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+        printSubWordCacheCounters(anagram);
+    }
+
+    @FunctionalInterface
+    private interface ResultWrite {
+        void write() throws IOException;
+    }
+
+    // the machine readable formats get nothing on standard output but the results, the rest goes to standard error
+    private static void findAndWriteResults(Parser parser, Dictionary dictionary, Anagram anagram, String word) {
+        long startTime = System.currentTimeMillis();
+        OutputStream stream = new BufferedOutputStream(new FileOutputStream(FileDescriptor.out), OUTPUT_BUFFER_SIZE);
+
+        try (ResultWriter writer = ResultWriterFactory.getResultWriter(parser, dictionary, stream)) {
+            int topK = parser.getOption(Switch.TOP_K).getInt();
+            SearchLimit limit = anagram.newSearchLimit();
+
+            if (topK > 0) {
+                AnagramScorer scorer = AnagramFactory.getScorer(parser);
+
+                for (RankedAnagram ranked : anagram.findTopAnagramsOf(word, topK, scorer, limit))
+                    writeResult(() -> writer.writeRankedAnagram(ranked));
+            } else if (parser.getOption(Switch.COUNT_ONLY).getBool()) {
+                BigInteger count = anagram.countMultipleWordAnagramsOf(word, limit);
+
+                writeResult(() -> writer.writeCount(count));
+            } else if (parser.getOption(Switch.FACTORIZED).getBool()) {
+                anagram.findFactorizedAnagramsOf(word,
+                        found -> writeResult(() -> writer.writeFactorizedAnagram(found)), limit);
+            } else if (parser.getOption(Switch.SORTED_OUTPUT).getBool()) {
+                for (String found : anagram.findMultipleWordAnagramsOf(word, limit))
+                    writeResult(() -> writer.writeAnagram(found));
+            } else {
+                anagram.findMultipleWordAnagramsOf(word, found -> writeResult(() -> writer.writeAnagram(found)), limit);
+            }
+
+            if (!outputClosed)
+                writer.finish(word, anagramCount, limit.isTruncated());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error: " + e.getMessage() + "!");
+            System.exit(-1);
+        } catch (IOException e) {
+            closeOutput();
+        }
+
+        long endTime = System.currentTimeMillis();
+
+        System.err.println("Results written: " + anagramCount);
+        System.err.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+        printSubWordCacheCounters(anagram);
+    }
+
+    private static void writeResult(ResultWrite resultWrite) {
+        if (outputClosed) return;
+
+        try {
+            resultWrite.write();
+            anagramCount++;
+        } catch (IOException e) {
+            closeOutput();
         }
+    }
+
+    // the counters are diagnostics rather than results, so they're kept off standard output and only printed with the
+    // rest of the state
+    private static void printSubWordCacheCounters(Anagram anagram) {
+        if (printState)
+            System.err.println(anagram.getSubWordCache());
+    }
 
+    private static void printIfStoppedEarly(SearchLimit limit) {
+        if (limit.isTruncated())
+            System.out.println("Search stopped early by the timeout, not every anagram was found");
+    }
+
+    private static void countAndPrintAnagrams(Anagram anagram, String word) {
+        long startTime = System.currentTimeMillis();
+        BigInteger count = anagram.countMultipleWordAnagramsOf(word);
+        long endTime = System.currentTimeMillis();
+
+        anagramThreadIsRunning = false;
+
+        System.out.println(NEWLINE + "Anagrams of \"" + word + "\" counted: " + count);
         System.out.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+        printSubWordCacheCounters(anagram);
+    }
+
+    // anagrams are printed as soon as they're found, so the header goes out with the first one
+    private static void printAnagram(String word, String anagram) {
+        if (anagramCount++ == 0) {
+            anagramThreadIsRunning = false;
+            System.out.println(NEWLINE + "Anagrams of \"" + word + "\" found:");
+            System.out.flush(); // XXX: the header and the dots before it go through System.out, the anagrams don't
+        }
+
+        printLine(anagram);
+    }
+
+    // once standard output is closed, e.g. by "| head", the search is stopped and there's nothing left to do
+    private static void printLine(String line) {
+        if (outputClosed) return;
+
+        try {
+            out.write(line);
+            out.write(NEWLINE);
+        } catch (IOException e) {
+            closeOutput();
+        }
+    }
+
+    private static void flushOutput() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            closeOutput();
+        }
+    }
+
+    private static void closeOutput() {
+        outputClosed = true;
+        cancellationToken.cancel();
+    }
+
+    private static void compileDictionary(Dictionary dictionary, String filename) {
+        try {
+            DictionaryCompiler.compile(dictionary, filename);
+            System.out.println("Compiled dictionary written to \"" + filename + "\"");
+        } catch (IOException e) {
+            System.err.println("Error writing compiled dictionary file!");
+            System.exit(-1);
+        }
+
+        System.exit(0);
     }
 
     private static void printHelp(Parser commandlineParser) {
@@ -74,22 +293,68 @@ public class AnagramFinder {
             printHelp(commandlineParser);
 
         // XXX: this is pretty janky but has to be called after the Parser::parseArgs() method
-        if (commandlineParser.getOption(Switch.PRINT_STATE).getBool())
+        printState = commandlineParser.getOption(Switch.PRINT_STATE).getBool();
+
+        if (printState)
             commandlineParser.printState();
 
         Dictionary dictionary = DictionaryFactory.getDictionary(commandlineParser);
-        Anagram anagram = AnagramFactory.getAnagram(commandlineParser, dictionary);
+        String compiledDictionaryFile = commandlineParser.getOption(Switch.COMPILE_DICTIONARY).getString();
+
+        if (!compiledDictionaryFile.isBlank())
+            compileDictionary(dictionary, compiledDictionaryFile);
+
+        String batchFile = commandlineParser.getOption(Switch.BATCH_FILE).getString();
+
+        boolean textOutput = ResultWriterFactory.isTextFormat(commandlineParser);
+
+        if (!batchFile.isBlank()) {
+            if (!textOutput) {
+                System.err.println("Error: batch mode only writes the text output format!");
+                System.exit(-1);
+            }
+
+            BatchAnagramFinder.run(commandlineParser, dictionary, batchFile);
+            return;
+        }
+
+        Anagram anagram = AnagramFactory.getAnagram(commandlineParser, dictionary)
+                .setCancellationToken(cancellationToken);
         String word = commandlineParser.getOption(Switch.COLLECT_PHRASE).getString();
 
+        if (!textOutput) {
+            findAndWriteResults(commandlineParser, dictionary, anagram, word);
+            return;
+        }
+
         Thread printGeneratingAnagramsMessage = new Thread(AnagramFinder::printGeneratingAnagramsMessage);
-        Thread findAnagrams = new Thread(() -> findAndPrintAnagrams(anagram, word));
+        Thread findAnagrams;
+
+        int topK = commandlineParser.getOption(Switch.TOP_K).getInt();
+
+        if (topK > 0) {
+            AnagramScorer scorer = AnagramFactory.getScorer(commandlineParser);
+
+            findAnagrams = new Thread(() -> findAndPrintTopAnagrams(anagram, word, topK, scorer));
+        } else if (commandlineParser.getOption(Switch.COUNT_ONLY).getBool()) {
+            findAnagrams = new Thread(() -> countAndPrintAnagrams(anagram, word));
+        } else if (commandlineParser.getOption(Switch.FACTORIZED).getBool()) {
+            findAnagrams = new Thread(() -> findAndPrintFactorizedAnagrams(anagram, word));
+        } else {
+            boolean sorted = commandlineParser.getOption(Switch.SORTED_OUTPUT).getBool();
+
+            findAnagrams = new Thread(() -> findAndPrintAnagrams(anagram, word, sorted));
+        }
 
         findAndPrintSubWords(anagram, word);
 
+        // XXX: set before either thread starts, the first anagram found clears it and must not be overwritten. the dots
+        //  never keep the JVM up on their own either way
+        anagramThreadIsRunning = true;
+
+        printGeneratingAnagramsMessage.setDaemon(true);
         printGeneratingAnagramsMessage.start();
         findAnagrams.start();
-
-        anagramThreadIsRunning = true;
     }
 
 }
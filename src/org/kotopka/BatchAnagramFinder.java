@@ -0,0 +1,182 @@
+package org.kotopka;
+
+import org.kotopka.anagram.Anagram;
+import org.kotopka.anagram.AnagramFactory;
+import org.kotopka.anagram.AnagramScorer;
+import org.kotopka.anagram.RankedAnagram;
+import org.kotopka.anagram.SearchLimit;
+import org.kotopka.anagram.SubWordCache;
+import org.kotopka.dictionary.Dictionary;
+import org.kotopka.parser.Parser;
+import org.kotopka.parser.Switch;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * {@code BatchAnagramFinder} - Finds the anagrams of every phrase in a file or on standard input, one phrase per line,
+ * for the batch file option of {@code AnagramFinder}. The phrases are handed out to a fixed number of worker threads
+ * through a bounded queue, so however many phrases there are only a few are held in memory at a time. Every worker
+ * searches its phrases on its own thread with an {@code Anagram} of its own, all of them sharing the
+ * {@code Dictionary} and the sub-word cache.
+ *
+ * <p>Each line of output is the phrase and a result separated by a tab. A worker collects the output of a phrase and
+ * writes it out in chunks, so the lines of a phrase mostly stay together but the phrases come out in the order they
+ * are finished in. A phrase whose search fails ends with a line with the error, and the worker goes on with the next
+ * phrase, so that a single phrase can't leave the rest of the batch waiting for a worker that's gone.</p>
+ */
+public final class BatchAnagramFinder {
+
+    private static final String END_OF_PHRASES = new String("END_OF_PHRASES"); // compared by identity
+    private static final int PHRASES_PER_WORKER = 4;
+    private static final int CHUNK_SIZE = 1 << 16;
+
+    private final Parser parser;
+    private final Dictionary dictionary;
+    private final SubWordCache subWordCache;
+    private final BlockingQueue<String> phrases;
+    private final Writer out;
+    private final int workers;
+
+    private BatchAnagramFinder(Parser parser, Dictionary dictionary) {
+        this.parser = parser;
+        this.dictionary = dictionary;
+        this.subWordCache = new SubWordCache(parser.getOption(Switch.SUB_WORD_CACHE_SIZE).getInt());
+        int parallelism = parser.getOption(Switch.PARALLELISM).getInt();
+
+        this.workers = (parallelism > 0) ? parallelism : Runtime.getRuntime().availableProcessors();
+        this.phrases = new ArrayBlockingQueue<>(workers * PHRASES_PER_WORKER);
+        this.out = AnagramFinder.newStandardOutputWriter();
+    }
+
+    public static void run(Parser parser, Dictionary dictionary, String filename) {
+        new BatchAnagramFinder(parser, dictionary).run(filename);
+    }
+
+    private void run(String filename) {
+        long startTime = System.currentTimeMillis();
+        List<Thread> threads = new ArrayList<>();
+        long phraseCount = 0;
+
+        for (int i = 0; i < workers; i++) {
+            Thread thread = new Thread(this::work, "batch-worker-" + i);
+
+            threads.add(thread);
+            thread.start();
+        }
+
+        try (BufferedReader reader = filename.equals("-") ?
+                new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)) :
+                Files.newBufferedReader(Paths.get(filename), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) continue;
+
+                phrases.put(line.trim()); // waits while the workers are busy, which keeps the memory use bounded
+                phraseCount++;
+            }
+
+            for (int i = 0; i < workers; i++)
+                phrases.put(END_OF_PHRASES);
+
+            for (Thread thread : threads)
+                thread.join();
+
+            flushOutput();
+        } catch (IOException e) {
+            System.err.println("Error reading batch file!");
+            System.exit(-1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long endTime = System.currentTimeMillis();
+
+        System.err.println("Phrases processed: " + phraseCount);
+        System.err.println("Elapsed time: " + (double)(endTime - startTime) / 1000 + " seconds");
+
+        if (parser.getOption(Switch.PRINT_STATE).getBool())
+            System.err.println(subWordCache);
+    }
+
+    private void work() {
+        Anagram anagram = AnagramFactory.getAnagram(parser, dictionary)
+                .setParallelism(1) // XXX: the phrases are what's run in parallel here
+                .setSubWordCache(subWordCache);
+        int topK = parser.getOption(Switch.TOP_K).getInt();
+        AnagramScorer scorer = (topK > 0) ? AnagramFactory.getScorer(parser) : null;
+        StringBuilder chunk = new StringBuilder();
+
+        try {
+            for (String phrase = phrases.take(); phrase != END_OF_PHRASES; phrase = phrases.take()) {
+                String prefix = phrase + "\t";
+
+                // XXX: an OutOfMemoryError is caught as well, the memory of the search it was thrown in is freed
+                //  along with it, and the other phrases may well need less
+                try {
+                    SearchLimit limit = anagram.newSearchLimit();
+
+                    if (topK > 0) {
+                        for (RankedAnagram ranked : anagram.findTopAnagramsOf(phrase, topK, scorer, limit))
+                            append(chunk, prefix, ranked.toString());
+                    } else if (parser.getOption(Switch.COUNT_ONLY).getBool()) {
+                        append(chunk, prefix, anagram.countMultipleWordAnagramsOf(phrase, limit).toString());
+                    } else if (parser.getOption(Switch.FACTORIZED).getBool()) {
+                        anagram.findFactorizedAnagramsOf(phrase, found -> append(chunk, prefix, found.toString()),
+                                limit);
+                    } else {
+                        anagram.findMultipleWordAnagramsOf(phrase, found -> append(chunk, prefix, found), limit);
+                    }
+
+                    if (limit.isTruncated())
+                        append(chunk, prefix, "# stopped early");
+                } catch (RuntimeException | OutOfMemoryError e) {
+                    append(chunk, prefix, "# error: " + e);
+                }
+
+                writeChunk(chunk);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void append(StringBuilder chunk, String prefix, String result) {
+        chunk.append(prefix).append(result).append('\n');
+
+        if (chunk.length() >= CHUNK_SIZE)
+            writeChunk(chunk);
+    }
+
+    // once standard output is closed, e.g. by "| head", there's no point in going on with the remaining phrases
+    private void writeChunk(StringBuilder chunk) {
+        synchronized (out) {
+            try {
+                out.append(chunk);
+            } catch (IOException e) {
+                System.exit(0);
+            }
+        }
+
+        chunk.setLength(0);
+    }
+
+    private void flushOutput() {
+        synchronized (out) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                System.exit(0);
+            }
+        }
+    }
+
+}
@@ -1,27 +1,48 @@
 package org.kotopka.anagram;
 
 import org.kotopka.dictionary.Dictionary;
+import org.kotopka.word.LetterCount;
 import org.kotopka.word.Word;
 
+import java.math.BigInteger;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 /**
  * {@code Anagram} - Finds and prints a configurable list of anagrams of input phrase.
+ *
+ * <p>Everything a search needs besides the options is kept in a {@code SearchContext} of its own, and the sub-word
+ * cache can be shared between threads, so once configured one {@code Anagram} can run any number of searches at once,
+ * e.g. for a thread pool. The options themselves aren't meant to be changed while searches are running.</p>
  */
 public final class Anagram {
 
+    private static final int MAX_SPLIT_DEPTH = 4;
+    private static final int SURPLUS_TASK_THRESHOLD = 2;
+    static final int MAX_DEAD_ENDS = 1 << 20;
+
     private final Dictionary dictionary;
     private int maxResults;
     private int maxWordsInAnagram;
     private int maxTimeout;
-    private long startTime;
+    private CancellationToken cancellationToken;
     private String startFrom;
     private String includeWord;
     private String suffix;
     private boolean excludeDuplicates;
     private boolean restrictPermutations;
+    private boolean branchOnRarestLetter;
     private final Set<String> wordsToExclude;
-    private final Map<String, TreeSet<String>> subWordCache;
+
+    private ForkJoinPool forkJoinPool;
+    private SubWordCache subWordCache;
 
     public Anagram(Dictionary dictionary) {
         this.dictionary = dictionary;
@@ -32,7 +53,7 @@ public final class Anagram {
         this.includeWord = "";
         this.suffix = "";
         this.wordsToExclude = new HashSet<>();
-        this.subWordCache = new HashMap<>();
+        this.subWordCache = new SubWordCache(SubWordCache.DEFAULT_MAX_ENTRIES);
     }
 
     // NOTICE: all of the "set" methods return "this" so they can be chained.
@@ -62,6 +83,21 @@ public final class Anagram {
         return this;
     }
 
+    /**
+     * {@code setCancellationToken()} - Sets the token to stop the searches with from another thread. Without a token
+     * the searches can only be stopped by the timeout. Whether a search was stopped early is told by its
+     * {@code SearchLimit}, see {@code newSearchLimit()}.
+     * @param token the token to stop the searches with
+     * @return this {@code Anagram}
+     */
+    public Anagram setCancellationToken(CancellationToken token) {
+        Objects.requireNonNull(token, "Token cannot be null");
+
+        cancellationToken = token;
+
+        return this;
+    }
+
     public Anagram setStartFrom(String word) {
         Objects.requireNonNull(word, "Word cannot be null");
 
@@ -106,13 +142,72 @@ public final class Anagram {
         return this;
     }
 
+    /**
+     * {@code setShouldBranchOnRarestLetter()} - Sets whether {@code findMultipleWordAnagramsOf()} finds each set of
+     * words once with a {@code RarestLetterSearch} instead of searching word by word. Without restricted permutations
+     * the orderings of each set are then generated from it rather than searched for. Parallelism is ignored.
+     * @param shouldBranch whether to branch on the rarest letter
+     * @return this {@code Anagram}
+     */
+    public Anagram setShouldBranchOnRarestLetter(boolean shouldBranch) {
+        branchOnRarestLetter = shouldBranch;
+
+        return this;
+    }
+
+    // a parallelism of 1 runs the search on the calling thread, anything higher splits it across a ForkJoinPool
+    public Anagram setParallelism(int parallelism) {
+        if (parallelism <= 0) throw new IllegalArgumentException("Parallelism must be positive");
+
+        if (forkJoinPool != null)
+            forkJoinPool.shutdown();
+
+        forkJoinPool = (parallelism > 1) ? new ForkJoinPool(parallelism) : null;
+
+        return this;
+    }
+
+    // a cache size of 0 turns off caching, the counters are still kept
+    public Anagram setSubWordCacheSize(int maxEntries) {
+        if (maxEntries < 0) throw new IllegalArgumentException("Cache size cannot be negative");
+
+        subWordCache = new SubWordCache(maxEntries);
+
+        return this;
+    }
+
+    /**
+     * {@code setSubWordCache()} - Sets the cache to keep the sub-words of phrases in, e.g. to share one cache between
+     * several {@code Anagram} objects with the same {@code Dictionary}
+     * @param cache the cache to use
+     * @return this {@code Anagram}
+     */
+    public Anagram setSubWordCache(SubWordCache cache) {
+        Objects.requireNonNull(cache, "Cache cannot be null");
+
+        subWordCache = cache;
+
+        return this;
+    }
+
+    public SubWordCache getSubWordCache() { return subWordCache; }
+
     public TreeSet<String> findAllValidSubWordsAsSet(String word) {
         Objects.requireNonNull(word, "Method argument cannot be null");
 
+        return new TreeSet<>(getValidSubWordsOf(word));
+    }
+
+    // phrases with the same letters have the same sub-words so the cache is keyed on the sorted letters
+    private SortedSet<String> getValidSubWordsOf(String word) {
+        return subWordCache.get(LetterCount.of(word).toSortedString(), this::findValidSubWordsOfKey);
+    }
+
+    private SortedSet<String> findValidSubWordsOfKey(String key) {
         TreeSet<String> validSubWords = new TreeSet<>();
 
-        for (String subString : Word.generateSubSequences(word))
-            validSubWords.addAll(dictionary.getListOrEmpty(subString));
+        dictionary.getKeyTrie().forEachLetterGroupWithin(LetterCount.of(key),
+                group -> validSubWords.addAll(dictionary.getWordsInLetterGroup(group)));
 
         return validSubWords;
     }
@@ -126,92 +221,866 @@ public final class Anagram {
     }
 
     public List<String> findMultipleWordAnagramsOf(String word) {
-        LinkedList<String> anagram = new LinkedList<>();
-        List<String> anagramList   = new ArrayList<>();
+        return findMultipleWordAnagramsOf(word, newSearchLimit());
+    }
 
-        startTime = System.currentTimeMillis();
+    public List<String> findMultipleWordAnagramsOf(String word, SearchLimit limit) {
+        List<String> anagramList = new ArrayList<>();
 
-        buildAnagramList(word, startFrom, anagram, anagramList);
+        findMultipleWordAnagramsOf(word, anagramList::add, limit);
         Collections.sort(anagramList);
 
         return anagramList;
     }
 
-    private void buildAnagramList(String word, String startWord, LinkedList<String> anagram, List<String> anagramList) {
-        validateSubWordCache(word);
-        buildAnagramsFromSubWords(word, startWord, anagram, anagramList);
+    /**
+     * {@code findMultipleWordAnagramsOf()} - Finds the anagrams of the word and passes each one to the consumer as
+     * soon as it is found, in the order the search finds them. The search waits on the consumer, so a slow consumer
+     * slows down the search rather than letting results pile up. Without parallelism the search is run by an
+     * {@code AnagramIterator}. In parallel mode the consumer is called from the worker threads, but never by more than
+     * one thread at a time.
+     * <p>An include word is taken out of the letters before searching and put back into each anagram found without
+     * it, so those anagrams come out grouped by the rest of their words. With at most two words to an anagram there's
+     * no search at all, see {@code TwoWordSearch}, and with three or four the search meets in the middle, see
+     * {@code MeetInTheMiddleSearch}. With a cap on the results, see {@code setMaxResults()}, all three are left out, as
+     * they find the anagrams in another order than the word-by-word search and would keep other ones.</p>
+     * <p>The timeout starts when this is called and whichever searches it runs share it.</p>
+     * @param word the word or phrase to find anagrams of
+     * @param consumer the consumer to pass each anagram to
+     */
+    public void findMultipleWordAnagramsOf(String word, Consumer<String> consumer) {
+        findMultipleWordAnagramsOf(word, consumer, newSearchLimit());
+    }
+
+    // the same, under a limit from newSearchLimit() which tells afterwards whether the search was stopped early
+    public void findMultipleWordAnagramsOf(String word, Consumer<String> consumer, SearchLimit limit) {
+        Objects.requireNonNull(word, "Method argument cannot be null");
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        Objects.requireNonNull(limit, "Search limit cannot be null");
+
+        // no word has a symbol the dictionary doesn't, so there's nothing to search for
+        if (LetterCount.of(word).hasUnknownSymbols()) return;
+
+        // XXX: taking out the include word, and the two engines below, find the anagrams in another order than the
+        //  word-by-word search, so with a cap on the results they'd keep another subset of them. the cap bounds the
+        //  work anyway, so they're left out
+        boolean keepSearchOrder = maxResults != Integer.MAX_VALUE;
+
+        if (!includeWord.isBlank() && canTakeOutIncludeWord() && !keepSearchOrder) {
+            findWithIncludeWordTakenOut(word, consumer, limit);
+            return;
+        }
+
+        if (maxWordsInAnagram <= 2 && !keepSearchOrder) {
+            findTwoWordAnagrams(word, consumer, limit);
+            return;
+        }
+
+        if (maxWordsInAnagram <= MeetInTheMiddleSearch.MAX_WORDS && !keepSearchOrder &&
+                new SearchContext(word).findByMeetingInTheMiddle(LetterCount.of(word), consumer, limit))
+            return;
+
+        if (branchOnRarestLetter) {
+            new SearchContext(word).findByRarestLetter(LetterCount.of(word), consumer, limit);
+            return;
+        }
+
+        if (forkJoinPool == null) {
+            // the time the consumer takes counts towards the timeout here, as it does in parallel
+            newAnagramIterator(word, limit).forEachRemaining(consumer);
+            return;
+        }
+
+        new SearchContext(word).searchInParallel(LetterCount.of(word), consumer, limit);
+    }
+
+    // the word search would put each pair of words in both orders, the word it picks first going last and being the
+    // one held to the start word. with restricted permutations it only picks the second word from the first one on
+    private void findTwoWordAnagrams(String word, Consumer<String> consumer, SearchLimit limit) {
+        int[] emitted = new int[1];
+
+        new TwoWordSearch(dictionary, maxWordsInAnagram, limit).search(LetterCount.of(word), words -> {
+            String first = words[0];
+            String last = words[words.length - 1];
+
+            if (wordsToExclude.contains(first) || wordsToExclude.contains(last) ||
+                    (excludeDuplicates && words.length == 2 && first.equals(last)) ||
+                    (!suffix.isBlank() && !first.endsWith(suffix) && !last.endsWith(suffix)) ||
+                    (!includeWord.isBlank() && !first.equals(includeWord) && !last.equals(includeWord)))
+                return true;
+
+            if (words.length == 1) {
+                if (first.compareTo(startFrom) >= 0) {
+                    consumer.accept(first);
+                    emitted[0]++;
+                }
+            } else {
+                if (first.compareTo(startFrom) >= 0) {
+                    consumer.accept(last + " " + first);
+                    emitted[0]++;
+                }
+
+                if (!restrictPermutations && !first.equals(last) && last.compareTo(startFrom) >= 0 &&
+                        emitted[0] < maxResults) {
+                    consumer.accept(first + " " + last);
+                    emitted[0]++;
+                }
+            }
+
+            return emitted[0] < maxResults;
+        });
+    }
+
+    // each anagram found without the include word has to turn into at least one anagram with it, which it can't if
+    // an ordering starting from the start word could only be had by moving the include word, see below
+    private boolean canTakeOutIncludeWord() {
+        return restrictPermutations || startFrom.isBlank() || includeWord.compareTo(startFrom) < 0;
+    }
+
+    // the include word is taken out of the letters up front and the rest of each anagram is found by a search over
+    // the letters left, with one word less allowed. the include word is then put back in every place it can go
+    private void findWithIncludeWordTakenOut(String word, Consumer<String> consumer, SearchLimit limit) {
+        LetterCount rest = LetterCount.of(word);
+        LetterCount includeLetters = LetterCount.of(includeWord);
+
+        if (!rest.contains(includeLetters) || wordsToExclude.contains(includeWord) ||
+                !getValidSubWordsOf(word).contains(includeWord) ||
+                (restrictPermutations && includeWord.compareTo(startFrom) < 0))
+            return;
+
+        rest.subtract(includeLetters);
+
+        boolean includeWordHasSuffix = suffix.isBlank() || includeWord.endsWith(suffix);
+
+        if (rest.isEmpty()) {
+            if (includeWordHasSuffix && includeWord.compareTo(startFrom) >= 0)
+                consumer.accept(includeWord);
+
+            return;
+        }
+
+        if (maxWordsInAnagram == 1) return;
+
+        Anagram restSearch = copyOptions();
+
+        restSearch.includeWord = "";
+        restSearch.suffix = includeWordHasSuffix ? "" : suffix;
+
+        if (maxWordsInAnagram != Integer.MAX_VALUE)
+            restSearch.maxWordsInAnagram = maxWordsInAnagram - 1;
+
+        if (excludeDuplicates)
+            restSearch.wordsToExclude.add(includeWord);
+
+        // every rest turns into at least one anagram so the rest search can stop at the max results as well, the
+        // anagrams past them are dropped. in parallel mode the consumer is never called by two threads at once
+        int[] emitted = new int[1];
+
+        restSearch.findMultipleWordAnagramsOf(rest.toSortedString(), anagram -> {
+            String[] words = anagram.split(" ");
+
+            if (restrictPermutations)
+                emitted[0] = emitWithWordInOrder(words, emitted[0], consumer);
+            else
+                emitted[0] = emitWithWordInEveryPlace(words, emitted[0], consumer);
+        }, limit);
     }
 
-    private void validateSubWordCache(String word) {
-        if (!subWordCache.containsKey(word))
-            subWordCache.put(word, findAllValidSubWordsAsSet(word));
+    // the words of an anagram with restricted permutations are in reverse alphabetical order
+    private int emitWithWordInOrder(String[] words, int emitted, Consumer<String> consumer) {
+        if (emitted >= maxResults) return emitted;
+
+        StringJoiner joiner = new StringJoiner(" ");
+        boolean placed = false;
+
+        for (String word : words) {
+            if (!placed && word.compareTo(includeWord) < 0) {
+                joiner.add(includeWord);
+                placed = true;
+            }
+
+            joiner.add(word);
+        }
+
+        if (!placed)
+            joiner.add(includeWord);
+
+        consumer.accept(joiner.toString());
+
+        return emitted + 1;
     }
 
-    private void buildAnagramsFromSubWords(String word, String startWord, LinkedList<String> anagram, List<String> anagramList) {
-        for (String subWord : getSubWordCacheOf(word, startWord)) {
-            if (wordsToExclude.contains(subWord))
+    // the include word goes in every place up to the first time it's already in the anagram, any later place would
+    // give an ordering already given by an earlier one. the last word is the one held to the start word
+    private int emitWithWordInEveryPlace(String[] words, int emitted, Consumer<String> consumer) {
+        int lastPlace = Arrays.asList(words).indexOf(includeWord);
+
+        if (lastPlace < 0)
+            lastPlace = words.length;
+
+        for (int place = 0; place <= lastPlace && emitted < maxResults; place++) {
+            String lastWord = (place == words.length) ? includeWord : words[words.length - 1];
+
+            if (lastWord.compareTo(startFrom) < 0)
                 continue;
 
-            if (excludeDuplicates)
-                wordsToExclude.add(subWord);
+            StringJoiner joiner = new StringJoiner(" ");
+
+            for (int i = 0; i < words.length; i++) {
+                if (i == place) joiner.add(includeWord);
+
+                joiner.add(words[i]);
+            }
+
+            if (place == words.length)
+                joiner.add(includeWord);
+
+            consumer.accept(joiner.toString());
+            emitted++;
+        }
+
+        return emitted;
+    }
+
+    // an Anagram with the same options sharing the same pool and cache, for searches run as part of this one's
+    private Anagram copyOptions() {
+        Anagram copy = new Anagram(dictionary);
+
+        copy.maxResults = maxResults;
+        copy.maxWordsInAnagram = maxWordsInAnagram;
+        copy.maxTimeout = maxTimeout;
+        copy.cancellationToken = cancellationToken;
+        copy.startFrom = startFrom;
+        copy.includeWord = includeWord;
+        copy.suffix = suffix;
+        copy.excludeDuplicates = excludeDuplicates;
+        copy.restrictPermutations = restrictPermutations;
+        copy.branchOnRarestLetter = branchOnRarestLetter;
+        copy.wordsToExclude.addAll(wordsToExclude);
+        copy.forkJoinPool = forkJoinPool;
+        copy.subWordCache = subWordCache;
+
+        return copy;
+    }
+
+    // rearranges the indices into the next ordering in lexicographic order, returns false once they're in the last
+    private static boolean nextPermutation(int[] indices) {
+        int i = indices.length - 2;
+
+        while (i >= 0 && indices[i] >= indices[i + 1])
+            i--;
+
+        if (i < 0) return false;
+
+        int j = indices.length - 1;
+
+        while (indices[j] <= indices[i])
+            j--;
+
+        swap(indices, i, j);
+
+        for (int left = i + 1, right = indices.length - 1; left < right; left++, right--)
+            swap(indices, left, right);
+
+        return true;
+    }
+
+    private static void swap(int[] indices, int i, int j) {
+        int temp = indices[i];
+
+        indices[i] = indices[j];
+        indices[j] = temp;
+    }
+
+    /**
+     * {@code iterateMultipleWordAnagramsOf()} - Gets an {@code AnagramIterator} which finds the anagrams of the word
+     * one at a time, each call to {@code hasNext()} searching just far enough to find the next one. The search can be
+     * left suspended between anagrams and picked up again later, the timeout only counting the time spent searching.
+     * The iterator always searches on the calling thread and keeps working on the sub-words of the word even if this
+     * {@code Anagram} is used for other searches meanwhile.
+     * @param word the word or phrase to find anagrams of
+     * @return an {@code AnagramIterator} over the anagrams of the word
+     */
+    public AnagramIterator iterateMultipleWordAnagramsOf(String word) {
+        Objects.requireNonNull(word, "Method argument cannot be null");
+
+        return newAnagramIterator(word, newSearchLimit(true));
+    }
+
+    private AnagramIterator newAnagramIterator(String word, SearchLimit limit) {
+        SearchContext context = new SearchContext(word);
+
+        return new AnagramIterator(context.subWords, context.subWordCounts, context.hasSuffix, context.allSubWords,
+                LetterCount.of(word), context.getInitiallyExcludedSubWords(), context.getStartIndex(), maxResults,
+                maxWordsInAnagram, limit, includeWord, suffix, excludeDuplicates, restrictPermutations);
+    }
+
+    /**
+     * {@code newSearchLimit()} - Creates the limit of a single search, with the cancellation token and the timeout of
+     * this {@code Anagram}, the timeout starting now. Passed to one of the search methods it tells afterwards whether
+     * that search was stopped early, which the token can't tell as any number of searches may share it.
+     * @return a new {@code SearchLimit}
+     */
+    public SearchLimit newSearchLimit() {
+        return newSearchLimit(false);
+    }
+
+    private SearchLimit newSearchLimit(boolean pausable) {
+        CancellationToken token = (cancellationToken != null) ? cancellationToken : new CancellationToken();
+
+        return new SearchLimit(token, maxTimeout, pausable);
+    }
+
+    /**
+     * {@code findTopAnagramsOf()} - Finds the best anagrams of the word under the scorer with a branch-and-bound
+     * search, see {@code RankedSearch}, which drops any partial anagram that can't beat the ones already found. The
+     * anagrams considered are those {@code findMultipleWordAnagramsOf()} would find, the max results don't apply and
+     * the search always runs on the calling thread.
+     * @param word the word or phrase to find anagrams of
+     * @param k the number of anagrams to find
+     * @param scorer the scorer to rank the anagrams by
+     * @return up to {@code k} of the best anagrams, best first
+     */
+    public List<RankedAnagram> findTopAnagramsOf(String word, int k, AnagramScorer scorer) {
+        return findTopAnagramsOf(word, k, scorer, newSearchLimit());
+    }
+
+    public List<RankedAnagram> findTopAnagramsOf(String word, int k, AnagramScorer scorer, SearchLimit limit) {
+        Objects.requireNonNull(word, "Method argument cannot be null");
+        Objects.requireNonNull(scorer, "Scorer cannot be null");
+        Objects.requireNonNull(limit, "Search limit cannot be null");
+
+        if (k <= 0) throw new IllegalArgumentException("K must be positive");
+
+        SearchContext context = new SearchContext(word);
+
+        return new RankedSearch(context.subWords, context.subWordCounts, context.getInitiallyExcludedSubWords(),
+                maxWordsInAnagram, limit, includeWord, suffix, excludeDuplicates, restrictPermutations,
+                scorer, k).search(LetterCount.of(word), startFrom);
+    }
+
+    public List<FactorizedAnagram> findFactorizedAnagramsOf(String word) {
+        List<FactorizedAnagram> anagramList = new ArrayList<>();
+
+        findFactorizedAnagramsOf(word, anagramList::add);
+
+        return anagramList;
+    }
 
-            buildAnagram(word, subWord, anagram, anagramList);
+    /**
+     * {@code findFactorizedAnagramsOf()} - Finds the anagrams of the word over the distinct letter keys of the
+     * {@code Dictionary} rather than over single words, see {@code KeySearch}, and passes each one to the consumer as a
+     * {@code FactorizedAnagram} which can be expanded into phrases when they're actually needed. The search time and
+     * the number of results follow the number of key combinations instead of the number of phrases.
+     * <p>The anagrams found are those of a search with restricted permutations, regardless of that option. The max
+     * results apply to the factorized anagrams and parallelism is ignored.</p>
+     * @param word the word or phrase to find anagrams of
+     * @param consumer the consumer to pass each anagram to
+     */
+    public void findFactorizedAnagramsOf(String word, Consumer<FactorizedAnagram> consumer) {
+        findFactorizedAnagramsOf(word, consumer, newSearchLimit());
+    }
 
-            if (excludeDuplicates) wordsToExclude.remove(subWord);
-            if (anagramList.size() == maxResults) return;
+    public void findFactorizedAnagramsOf(String word, Consumer<FactorizedAnagram> consumer, SearchLimit limit) {
+        Objects.requireNonNull(word, "Method argument cannot be null");
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+        Objects.requireNonNull(limit, "Search limit cannot be null");
+
+        LetterCount letters = LetterCount.of(word);
+        Map<List<Object>, SortedSet<String>> groups = new LinkedHashMap<>();
+
+        // the include word and the words with the suffix are grouped apart from the other words with the same
+        // letters, the search can then tell whether they're in an anagram from its groups
+        dictionary.getKeyTrie().forEachLetterGroupWithin(letters, letterGroup -> {
+            for (String subWord : dictionary.getWordsInLetterGroup(letterGroup)) {
+                if (wordsToExclude.contains(subWord) || subWord.compareTo(startFrom) < 0)
+                    continue;
+
+                List<Object> group = List.of(LetterCount.of(subWord), subWord.equals(includeWord),
+                        !suffix.isBlank() && subWord.endsWith(suffix));
+
+                groups.computeIfAbsent(group, g -> new TreeSet<>()).add(subWord);
+            }
+        });
+
+        int groupCount = groups.size();
+        LetterCount[] groupCounts = new LetterCount[groupCount];
+        List<List<String>> groupWords = new ArrayList<>(groupCount);
+        boolean[] isIncludeWord = new boolean[groupCount];
+        boolean[] hasSuffix = new boolean[groupCount];
+        int g = 0;
+
+        for (Map.Entry<List<Object>, SortedSet<String>> entry : groups.entrySet()) {
+            groupCounts[g] = (LetterCount) entry.getKey().get(0);
+            isIncludeWord[g] = (Boolean) entry.getKey().get(1);
+            hasSuffix[g] = (Boolean) entry.getKey().get(2);
+            groupWords.add(List.copyOf(entry.getValue()));
+            g++;
         }
+
+        new KeySearch(groupCounts, groupWords, isIncludeWord, hasSuffix, !includeWord.isBlank(), !suffix.isBlank(),
+                maxWordsInAnagram, excludeDuplicates, maxResults, limit).search(letters, consumer);
     }
 
-    private SortedSet<String> getSubWordCacheOf(String word, String startWord) {
-        return subWordCache.get(word).tailSet(startWord);
+    /**
+     * {@code countMultipleWordAnagramsOf()} - Counts the anagrams {@code findMultipleWordAnagramsOf()} would find
+     * without building any of them. The count is worked out over groups of sub-words with the same letters, see
+     * {@code AnagramCounter}, and follows the same options except for the max results and the timeout.
+     * <p>Anagrams that must include a word or a suffix are counted by subtracting the anagrams without any such word
+     * from the total. The one combination the counter doesn't handle, a start word without restricted permutations,
+     * is counted by running the search, which the timeout does apply to.</p>
+     * @param word the word or phrase to count the anagrams of
+     * @return the number of anagrams
+     */
+    public BigInteger countMultipleWordAnagramsOf(String word) {
+        return countMultipleWordAnagramsOf(word, newSearchLimit());
     }
 
-    private void buildAnagram(String word, String subWord, LinkedList<String> anagram, List<String> anagramList) {
-        // XXX: not exactly the best method to terminate the search after timeout but sorta works,
-        // also not sure where to place this check for maximum effectiveness, I think here is a good place
-        // because it will be caught in the indirect recursion
-        if (System.currentTimeMillis() - startTime > maxTimeout) return;
+    public BigInteger countMultipleWordAnagramsOf(String word, SearchLimit limit) {
+        Objects.requireNonNull(word, "Method argument cannot be null");
+        Objects.requireNonNull(limit, "Search limit cannot be null");
+
+        if (!restrictPermutations && !startFrom.isBlank())
+            return countByEnumerating(word, limit);
+
+        LetterCount letters = LetterCount.of(word);
+        SearchContext context = new SearchContext(word);
 
-        String diff = Word.subtract(word, subWord);
+        BigInteger count = countWithout(context, letters, subWord -> false);
 
-        anagram.push(subWord);
+        if (!includeWord.isBlank())
+            count = count.subtract(countWithout(context, letters, includeWord::equals));
 
-        if (isAnagramValid(diff, anagram))
-            addAnagramToList(anagram, anagramList);
-        else
-            continueBuildingAnagramRecursively(diff, subWord, anagram, anagramList);
+        if (!suffix.isBlank())
+            count = count.subtract(countWithout(context, letters, subWord -> subWord.endsWith(suffix)));
 
-        anagram.pop();
+        if (!includeWord.isBlank() && !suffix.isBlank())
+            count = count.add(countWithout(context, letters,
+                    subWord -> subWord.equals(includeWord) || subWord.endsWith(suffix)));
+
+        return count;
     }
 
-    private boolean isAnagramValid(String diff, List<String> anagram) {
-        boolean wordWithSuffixFound;
+    private BigInteger countByEnumerating(String word, SearchLimit limit) {
+        AtomicLong count = new AtomicLong();
 
-        if (suffix.isBlank())
-            wordWithSuffixFound = true;
-        else
-            wordWithSuffixFound = isWordWithSuffixFound(anagram);
+        findMultipleWordAnagramsOf(word, anagram -> count.incrementAndGet(), limit);
 
-        return (diff.isBlank() && wordWithSuffixFound && anagram.size() <= maxWordsInAnagram &&
-                (includeWord.isBlank() || anagram.contains(includeWord)));
+        return BigInteger.valueOf(count.get());
     }
 
-    private boolean isWordWithSuffixFound(List<String> anagram) {
-        for (String s : anagram)
-            if (s.endsWith(suffix)) return true;
+    private BigInteger countWithout(SearchContext context, LetterCount letters, Predicate<String> isRemoved) {
+        String[] subWords = context.subWords;
+        Map<LetterCount, Integer> groups = new LinkedHashMap<>();
+        int firstSubWord = restrictPermutations ? context.getStartIndex() : 0;
+
+        for (int i = firstSubWord; i < subWords.length; i++)
+            if (!wordsToExclude.contains(subWords[i]) && !isRemoved.test(subWords[i]))
+                groups.merge(context.subWordCounts[i], 1, Integer::sum);
+
+        int[] groupSizes = groups.values().stream().mapToInt(Integer::intValue).toArray();
+        int maxWords = Math.min(maxWordsInAnagram, letters.size());
 
-        return false;
+        return new AnagramCounter(groups.keySet().toArray(new LetterCount[0]), groupSizes, maxWords,
+                maxWords < letters.size(), restrictPermutations, excludeDuplicates).count(letters);
     }
 
-    private void addAnagramToList(List<String> anagram, List<String> anagramList) {
-        anagramList.add(String.join(" ", anagram));
+    /**
+     * {@code SearchContext} - The state of a single call: the sub-words of the phrase and their letters, and for the
+     * recursive search where its anagrams go, how many have been found, its dead ends and its limit. Each call builds
+     * a context of its own, which is what lets one {@code Anagram} serve any number of calls at once.
+     */
+    private final class SearchContext {
+        // the search only ever works on indices into these arrays, the words themselves are
+        // only looked at again when a complete anagram is turned into a String
+        private final String[] subWords;
+        private final LetterCount[] subWordCounts;
+        private final boolean[] hasSuffix;
+        private final LetterCount includeWordCount;
+        private final int[] allSubWords;
+
+        private Consumer<String> anagramConsumer;
+        private AtomicInteger resultCount;
+        private Map<LetterCount, Integer> deadEnds;
+        private SearchLimit searchLimit;
+
+        private SearchContext(String word) {
+            List<String> words = new ArrayList<>();
+            List<LetterCount> counts = new ArrayList<>();
+
+            for (String subWord : getValidSubWordsOf(word)) {
+                LetterCount count = LetterCount.of(subWord);
+
+                if (!count.isEmpty()) {
+                    words.add(subWord);
+                    counts.add(count);
+                }
+            }
+
+            this.subWords = words.toArray(new String[0]);
+            this.subWordCounts = counts.toArray(new LetterCount[0]);
+            this.allSubWords = new int[subWords.length];
+            this.hasSuffix = suffix.isBlank() ? null : new boolean[subWords.length];
+            this.includeWordCount = LetterCount.of(includeWord);
+
+            for (int i = 0; i < subWords.length; i++) {
+                allSubWords[i] = i;
+
+                if (hasSuffix != null)
+                    hasSuffix[i] = subWords[i].endsWith(suffix);
+            }
+        }
+
+        private boolean[] getInitiallyExcludedSubWords() {
+            boolean[] excludedSubWords = new boolean[subWords.length];
+
+            for (int i = 0; i < subWords.length; i++)
+                excludedSubWords[i] = wordsToExclude.contains(subWords[i]);
+
+            return excludedSubWords;
+        }
+
+        private int getStartIndex() {
+            int index = Arrays.binarySearch(subWords, startFrom);
+
+            return (index >= 0) ? index : -(index + 1);
+        }
+
+        private void searchInParallel(LetterCount letters, Consumer<String> consumer, SearchLimit limit) {
+            SearchState state = new SearchState(letters, getInitiallyExcludedSubWords());
+
+            anagramConsumer = consumer;
+            resultCount = new AtomicInteger();
+            deadEnds = excludeDuplicates ? null : new ConcurrentHashMap<>();
+            searchLimit = limit;
+
+            forkJoinPool.invoke(new SearchTask(state, allSubWords, getStartIndex(), allSubWords.length, 0));
+        }
+
+        private void findByRarestLetter(LetterCount letters, Consumer<String> consumer, SearchLimit limit) {
+            int startIndex = getStartIndex();
+            int[] emitted = new int[1];
+
+            new RarestLetterSearch(subWords, subWordCounts, hasSuffix, maxWordsInAnagram, excludeDuplicates,
+                    limit).search(letters, getCandidates(letters, startIndex),
+                            words -> emitWordSet(words, startIndex, emitted, consumer));
+        }
+
+        // returns false without passing anything on if the phrase is too long for the search, see
+        // MeetInTheMiddleSearch
+        private boolean findByMeetingInTheMiddle(LetterCount letters, Consumer<String> consumer, SearchLimit limit) {
+            int startIndex = getStartIndex();
+            int[] emitted = new int[1];
+
+            return new MeetInTheMiddleSearch(subWordCounts, maxWordsInAnagram, excludeDuplicates,
+                    limit).search(letters, getCandidates(letters, startIndex),
+                            words -> emitWordSet(words, startIndex, emitted, consumer));
+        }
+
+        // with restricted permutations no sub-word before the start word can be in an anagram at all,
+        // otherwise only the word the anagram ends with is held to it, see emitPermutations()
+        private int[] getCandidates(LetterCount letters, int startIndex) {
+            boolean[] excludedSubWords = getInitiallyExcludedSubWords();
+            int[] candidates = new int[subWords.length];
+            int count = 0;
+
+            for (int i = restrictPermutations ? startIndex : 0; i < subWords.length; i++)
+                if (!excludedSubWords[i] && letters.contains(subWordCounts[i]))
+                    candidates[count++] = i;
+
+            return Arrays.copyOf(candidates, count);
+        }
+
+        // passes on a set of words found by one of the searches for sets of words rather than anagrams, in the orders
+        // the word search would find it in, and returns false once the max results have been reached
+        private boolean emitWordSet(int[] words, int startIndex, int[] emitted, Consumer<String> consumer) {
+            if ((!suffix.isBlank() && !isWordWithSuffixFound(words, words.length)) ||
+                    (!includeWord.isBlank() && !isIncludeWordFound(words, words.length)))
+                return true;
+
+            Arrays.sort(words);
+
+            if (restrictPermutations) {
+                // the words in the order the word search would find them in
+                emitted[0]++;
+                consumer.accept(joinWords(words, words.length - 1, -1));
+            } else {
+                emitted[0] = emitPermutations(words, startIndex, emitted[0], consumer);
+            }
+
+            return emitted[0] < maxResults;
+        }
+
+        // emits each distinct ordering of the sorted words that ends with a word from the start word on, in
+        // lexicographic order of their indices, and returns the number of anagrams emitted so far
+        private int emitPermutations(int[] words, int startIndex, int emitted, Consumer<String> consumer) {
+            do {
+                if (words[words.length - 1] >= startIndex) {
+                    consumer.accept(joinWords(words, 0, words.length));
+
+                    if (++emitted >= maxResults) break;
+                }
+            } while (nextPermutation(words));
+
+            return emitted;
+        }
+
+        private String joinWords(int[] words, int from, int to) {
+            StringJoiner joiner = new StringJoiner(" ");
+
+            for (int i = from; i != to; i += (from < to) ? 1 : -1)
+                joiner.add(subWords[words[i]]);
+
+            return joiner.toString();
+        }
+
+        private boolean buildAnagramList(SearchState state, int[] candidates, int from, int to, int depth) {
+            int[] validSubWords = state.getSubWordsAtDepth(depth, subWords.length);
+            int count = 0;
+
+            for (int i = from; i < to; i++)
+                if (state.remaining.contains(subWordCounts[candidates[i]]))
+                    validSubWords[count++] = candidates[i];
+
+            if (isSuffixRuledOut(state.anagram, depth, validSubWords, count))
+                return true; // ruled out by the suffix rather than by the letters, so not a dead end
+
+            if (forkJoinPool != null && shouldSplit(depth, count))
+                return new SearchTask(state, Arrays.copyOf(validSubWords, count), 0, count, depth).invoke();
+            else
+                return buildAnagramsFromSubWords(state, validSubWords, count, 0, count, depth);
+        }
+
+        // the top level is always split between the workers, deeper levels only when the workers are running out
+        // of queued work to steal. past MAX_SPLIT_DEPTH the subtrees are small enough that splitting costs more
+        // than it gains
+        private boolean shouldSplit(int depth, int count) {
+            return count > 1 && depth < MAX_SPLIT_DEPTH &&
+                    (depth == 0 || ForkJoinTask.getSurplusQueuedTaskCount() < SURPLUS_TASK_THRESHOLD);
+        }
+
+        // the search methods return false only when they have proven that there is no way to use up the remaining
+        // letters, anything cut short by the timeout or by maxResults counts as possibly solvable
+        private boolean buildAnagramsFromSubWords(SearchState state, int[] validSubWords, int count, int from, int to,
+                                                  int depth) {
+            boolean solvable = false;
+
+            for (int i = from; i < to; i++) {
+                int subWord = validSubWords[i];
+
+                if (state.excludedSubWords[subWord])
+                    continue;
+
+                if (excludeDuplicates)
+                    state.excludedSubWords[subWord] = true;
+
+                solvable |= buildAnagram(state, validSubWords, count, i, depth);
+
+                if (excludeDuplicates) state.excludedSubWords[subWord] = false;
+                if (resultCount.get() >= maxResults || searchLimit.isTruncated()) return true;
+            }
+
+            return solvable;
+        }
+
+        private boolean buildAnagram(SearchState state, int[] validSubWords, int count, int position, int depth) {
+            // the limit only looks at the clock and the token every so often, once it's hit every level above
+            // returns straight away instead of going on with its remaining sub-words
+            if (searchLimit.isStopped()) return true;
+
+            LetterCount subWordCount = subWordCounts[validSubWords[position]];
+            boolean solvable = true;
+
+            state.remaining.subtract(subWordCount);
+            state.anagram[depth] = validSubWords[position];
+
+            // a branch cut short by the word limit or the include word is only cut short, it isn't a dead end
+            if (isAnagramValid(state.remaining, state.anagram, depth + 1))
+                emitAnagram(state.anagram, depth + 1);
+            else if (!state.remaining.isEmpty() && depth + 1 < maxWordsInAnagram &&
+                    !isIncludeWordRuledOut(state.remaining, state.anagram, depth + 1))
+                solvable = continueBuildingAnagramRecursively(state, validSubWords, count, position, depth + 1);
+
+            state.remaining.add(subWordCount);
+
+            return solvable;
+        }
+
+        private boolean isAnagramValid(LetterCount remaining, int[] anagram, int length) {
+            boolean wordWithSuffixFound;
+
+            if (suffix.isBlank())
+                wordWithSuffixFound = true;
+            else
+                wordWithSuffixFound = isWordWithSuffixFound(anagram, length);
+
+            return (remaining.isEmpty() && wordWithSuffixFound && length <= maxWordsInAnagram &&
+                    (includeWord.isBlank() || isIncludeWordFound(anagram, length)));
+        }
+
+        private boolean isWordWithSuffixFound(int[] anagram, int length) {
+            for (int i = 0; i < length; i++)
+                if (subWords[anagram[i]].endsWith(suffix)) return true;
+
+            return false;
+        }
+
+        private boolean isIncludeWordFound(int[] anagram, int length) {
+            for (int i = 0; i < length; i++)
+                if (subWords[anagram[i]].equals(includeWord)) return true;
+
+            return false;
+        }
+
+        // once no word of the next level has the suffix, no word of any level below it has it either
+        private boolean isSuffixRuledOut(int[] anagram, int length, int[] validSubWords, int count) {
+            if (hasSuffix == null || isWordWithSuffixFound(anagram, length)) return false;
+
+            for (int i = 0; i < count; i++)
+                if (hasSuffix[validSubWords[i]]) return false;
+
+            return true;
+        }
+
+        // the include word only has to fit the remaining letters until it's been used, only the iterator and searches
+        // where it couldn't be taken out up front get this far with one
+        private boolean isIncludeWordRuledOut(LetterCount remaining, int[] anagram, int length) {
+            return !includeWord.isBlank() && !remaining.contains(includeWordCount) &&
+                    !isIncludeWordFound(anagram, length);
+        }
+
+        private void emitAnagram(int[] anagram, int length) {
+            // reserve a slot first so that parallel workers can't overshoot maxResults between them
+            if (resultCount.incrementAndGet() > maxResults) return;
+
+            StringJoiner joiner = new StringJoiner(" ");
+
+            // most recently added word first, the same order the words came off the old LinkedList stack
+            for (int i = length - 1; i >= 0; i--)
+                joiner.add(subWords[anagram[i]]);
+
+            if (forkJoinPool != null) {
+                synchronized (anagramConsumer) {
+                    anagramConsumer.accept(joiner.toString());
+                }
+            } else {
+                anagramConsumer.accept(joiner.toString());
+            }
+        }
+
+        private boolean continueBuildingAnagramRecursively(SearchState state, int[] validSubWords, int count,
+                                                           int position, int depth) {
+            // with restricted permutations only the sub-words from this one on can follow, so whether the remaining
+            // letters can be used up depends on where the next level starts as well as on the letters themselves
+            int firstSubWord = restrictPermutations ? validSubWords[position] : 0;
+
+            if (isDeadEnd(state.remaining, firstSubWord))
+                return false;
+
+            boolean solvable;
+
+            // XXX: here is where the indirect recursion starts. the sub-words of the remaining letters are always
+            // a subset of the sub-words at this level, or of all sub-words if permutations aren't restricted
+            if (restrictPermutations)
+                solvable = buildAnagramList(state, validSubWords, position, count, depth);
+            else
+                solvable = buildAnagramList(state, allSubWords, 0, allSubWords.length, depth);
+
+            if (!solvable)
+                addDeadEnd(state.remaining, firstSubWord);
+
+            return solvable;
+        }
+
+        // a dead end is a set of remaining letters that can't be used up by the sub-words starting from the recorded
+        // index, which also rules out every later starting index since those only have fewer sub-words to choose from
+        private boolean isDeadEnd(LetterCount remaining, int firstSubWord) {
+            if (deadEnds == null) return false;
+
+            Integer deadFrom = deadEnds.get(remaining);
+
+            return deadFrom != null && deadFrom <= firstSubWord;
+        }
+
+        private void addDeadEnd(LetterCount remaining, int firstSubWord) {
+            // XXX: the excluded sub-words change along each path when excluding duplicates, so a dead end found on one
+            // path isn't necessarily a dead end on another, hence no memo at all in that case
+            if (deadEnds != null && deadEnds.size() < MAX_DEAD_ENDS)
+                deadEnds.merge(remaining.copy(), firstSubWord, Math::min);
+        }
+
+        /**
+         * {@code SearchTask} - Searches the sub-words in positions {@code [from, to)} of one level of the search. A
+         * task spanning more than one position forks a task with its own copy of the search state for each position.
+         */
+        private final class SearchTask extends RecursiveTask<Boolean> {
+            private static final long serialVersionUID = 1L;
+
+            private final SearchState state;
+            private final int[] validSubWords;
+            private final int from;
+            private final int to;
+            private final int depth;
+
+            private SearchTask(SearchState state, int[] validSubWords, int from, int to, int depth) {
+                this.state = state;
+                this.validSubWords = validSubWords;
+                this.from = from;
+                this.to = to;
+                this.depth = depth;
+            }
+
+            @Override
+            protected Boolean compute() {
+                if (to - from == 1)
+                    return buildAnagramsFromSubWords(state, validSubWords, validSubWords.length, from, to, depth);
+
+                List<SearchTask> tasks = new ArrayList<>();
+                boolean solvable = false;
+
+                for (int i = from; i < to; i++)
+                    tasks.add(new SearchTask(state.copy(), validSubWords, i, i + 1, depth));
+
+                for (SearchTask task : invokeAll(tasks))
+                    solvable |= task.join();
+
+                return solvable;
+            }
+        }
     }
 
-    private void continueBuildingAnagramRecursively(String diff, String subWord, LinkedList<String> anagram, List<String> anagramList) {
-        String nextStart = (restrictPermutations) ? subWord : "";
+    /**
+     * {@code SearchState} - The mutable state of one depth-first search: the letters left to use, the sub-words
+     * chosen so far and the sub-words currently excluded. Each parallel task works on its own copy.
+     */
+    private static final class SearchState {
+        private final LetterCount remaining;
+        private final int[] anagram;
+        private final boolean[] excludedSubWords;
+        private final int[][] subWordsByDepth;
+
+        private SearchState(LetterCount remaining, boolean[] excludedSubWords) {
+            this(remaining, new int[remaining.size()], excludedSubWords);
+        }
 
-        // XXX: here is where the indirect recursion starts
-        buildAnagramList(diff, nextStart, anagram, anagramList);
+        private SearchState(LetterCount remaining, int[] anagram, boolean[] excludedSubWords) {
+            this.remaining = remaining;
+            this.anagram = anagram;
+            this.excludedSubWords = excludedSubWords;
+            this.subWordsByDepth = new int[anagram.length + 1][];
+        }
+
+        // the buffers of each level are only used while searching so the copy starts out without them
+        private SearchState copy() {
+            return new SearchState(remaining.copy(), anagram.clone(), excludedSubWords.clone());
+        }
+
+        private int[] getSubWordsAtDepth(int depth, int size) {
+            if (subWordsByDepth[depth] == null)
+                subWordsByDepth[depth] = new int[size];
+
+            return subWordsByDepth[depth];
+        }
     }
 
     // TODO: TESTING---------------------------------------------------------------------------------------------------
@@ -220,13 +1089,7 @@ public final class Anagram {
 
     // TODO: have a Set and List version of this method so that e.g. repeated words in the input could be considered
     public Set<String> getValidSubstringGroupsOf(String word) {
-        Set<String> subStrings = new TreeSet<>();
-
-        for (String s : Word.generateSubSequences(word))
-            if (dictionary.containsWord(s))
-                subStrings.add(s);
-
-        return subStrings;
+        return new TreeSet<>(dictionary.getKeyTrie().findKeysWithin(LetterCount.of(word)));
     }
 
     public List<List<String>> findAnagramGroupsOf(String word) {
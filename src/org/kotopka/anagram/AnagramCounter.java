@@ -0,0 +1,233 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.math.BigInteger;
+import java.util.*;
+
+/**
+ * {@code AnagramCounter} - Counts multi-word anagrams without building them. Sub-words with the same letters are
+ * grouped together and the count is worked out over the groups: each group is tried once per multiplicity, the
+ * number of ways to pick that many of its words is multiplied in instead of trying every word, and the counts of
+ * the remaining letters are memoized.
+ *
+ * <p>When every ordering of the words is counted and words may repeat, the count simply follows each group with any
+ * other group. Otherwise each group is tried once per multiplicity and only later groups may follow it, so that each
+ * set of groups is counted once. When needed, the counts are kept per number of words so that a maximum number of
+ * words can be applied and the orderings of distinct words can be worked out as binomial coefficients.</p>
+ */
+final class AnagramCounter {
+
+    private final LetterCount[] groupCounts;
+    private final int[] groupSizes;
+    private final int maxWords;
+    private final boolean restrictPermutations;
+    private final boolean excludeDuplicates;
+    private final boolean countByWords;
+    private final BigInteger[][] binomials;
+    private final Map<MemoKey, BigInteger[]> memo;
+    private int[][] groupsByDepth;
+
+    /**
+     * @param groupCounts the letters of each group of sub-words
+     * @param groupSizes the number of words in each group
+     * @param maxWords the maximum number of words in an anagram
+     * @param limitWords whether {@code maxWords} is an actual limit rather than the number of letters
+     * @param restrictPermutations count each set of words once instead of counting every ordering
+     * @param excludeDuplicates don't count anagrams which use the same word more than once
+     */
+    AnagramCounter(LetterCount[] groupCounts, int[] groupSizes, int maxWords, boolean limitWords,
+                   boolean restrictPermutations, boolean excludeDuplicates) {
+        this.groupCounts = groupCounts;
+        this.groupSizes = groupSizes;
+        this.maxWords = maxWords;
+        this.restrictPermutations = restrictPermutations;
+        this.excludeDuplicates = excludeDuplicates;
+        // without a word limit the counts only need splitting up by number of words for the orderings of
+        // distinct words, otherwise a single total per remainder will do
+        this.countByWords = limitWords || (!restrictPermutations && excludeDuplicates);
+        this.binomials = buildBinomials(maxWords);
+        this.memo = new HashMap<>();
+    }
+
+    private static BigInteger[][] buildBinomials(int max) {
+        BigInteger[][] table = new BigInteger[max + 1][];
+
+        for (int n = 0; n <= max; n++) {
+            table[n] = new BigInteger[n + 1];
+            table[n][0] = table[n][n] = BigInteger.ONE;
+
+            for (int k = 1; k < n; k++)
+                table[n][k] = table[n - 1][k - 1].add(table[n - 1][k]);
+        }
+
+        return table;
+    }
+
+    BigInteger count(LetterCount letters) {
+        if (letters.isEmpty()) return BigInteger.ZERO;
+
+        int[] allGroups = new int[groupCounts.length];
+
+        for (int i = 0; i < allGroups.length; i++)
+            allGroups[i] = i;
+
+        groupsByDepth = new int[letters.size() + 1][];
+
+        BigInteger[] counts = countFrom(letters.copy(), allGroups, 0, allGroups.length, 0);
+
+        if (!countByWords) return counts[0];
+
+        BigInteger total = BigInteger.ZERO;
+
+        for (int k = 1; k <= maxWords; k++)
+            total = total.add(counts[k]);
+
+        return total;
+    }
+
+    // counts the ways to use up exactly the remaining letters with the candidate groups in [from, to), by number of
+    // words if countByWords is set. each group is tried once with every multiplicity that fits and only later groups
+    // can follow it, except for ordered counts with repeats where any group can follow any other
+    private BigInteger[] countFrom(LetterCount remaining, int[] candidates, int from, int to, int depth) {
+        if (remaining.isEmpty())
+            return unit();
+
+        int[] groups = getGroupsAtDepth(depth);
+        int count = 0;
+
+        for (int i = from; i < to; i++)
+            if (groupSizes[candidates[i]] > 0 && remaining.contains(groupCounts[candidates[i]]))
+                groups[count++] = candidates[i];
+
+        if (count == 0)
+            return zero();
+
+        boolean ordered = !restrictPermutations && !excludeDuplicates;
+
+        // the groups that fit are all that matter for the rest of the count, so key on the first one of them
+        MemoKey key = new MemoKey(remaining, ordered ? -1 : groups[0]);
+        BigInteger[] memoized = memo.get(key);
+
+        if (memoized != null) return memoized;
+
+        BigInteger[] result = zero();
+
+        for (int i = 0; i < count; i++) {
+            int group = groups[i];
+
+            if (ordered) {
+                remaining.subtract(groupCounts[group]);
+                addTo(result, BigInteger.valueOf(groupSizes[group]), 1,
+                        countFrom(remaining, groups, 0, count, depth + 1));
+                remaining.add(groupCounts[group]);
+
+                continue;
+            }
+
+            int multiplicity = 0;
+
+            while (multiplicity < maxWords && remaining.contains(groupCounts[group])) {
+                remaining.subtract(groupCounts[group]);
+                multiplicity++;
+
+                BigInteger ways = waysToChoose(groupSizes[group], multiplicity);
+
+                if (ways.signum() == 0) break;
+
+                addTo(result, ways, multiplicity, countFrom(remaining, groups, i + 1, count, depth + 1));
+            }
+
+            for (int m = 0; m < multiplicity; m++)
+                remaining.add(groupCounts[group]);
+        }
+
+        memo.put(new MemoKey(remaining.copy(), key.firstGroup), result);
+
+        return result;
+    }
+
+    private void addTo(BigInteger[] result, BigInteger ways, int multiplicity, BigInteger[] rest) {
+        if (!countByWords) {
+            result[0] = result[0].add(ways.multiply(rest[0]));
+            return;
+        }
+
+        for (int k = multiplicity; k <= maxWords; k++) {
+            if (rest[k - multiplicity].signum() == 0) continue;
+
+            BigInteger combined = ways.multiply(rest[k - multiplicity]);
+
+            // with distinct words in order every interleaving of this group's words with the rest counts
+            if (!restrictPermutations && excludeDuplicates)
+                combined = combined.multiply(binomials[k][multiplicity]);
+
+            result[k] = result[k].add(combined);
+        }
+    }
+
+    private BigInteger[] unit() {
+        BigInteger[] unit = zero();
+
+        unit[0] = BigInteger.ONE;
+
+        return unit;
+    }
+
+    private BigInteger[] zero() {
+        BigInteger[] zero = new BigInteger[countByWords ? maxWords + 1 : 1];
+
+        Arrays.fill(zero, BigInteger.ZERO);
+
+        return zero;
+    }
+
+    private int[] getGroupsAtDepth(int depth) {
+        if (groupsByDepth[depth] == null)
+            groupsByDepth[depth] = new int[groupCounts.length];
+
+        return groupsByDepth[depth];
+    }
+
+    // the number of ways to fill `times` slots from a group of `size` words
+    private BigInteger waysToChoose(int size, int times) {
+        BigInteger ways = BigInteger.ONE;
+
+        for (int i = 0; i < times; i++) {
+            if (restrictPermutations && excludeDuplicates)       // distinct words, any order: C(size, times)
+                ways = ways.multiply(BigInteger.valueOf(size - i)).divide(BigInteger.valueOf(i + 1));
+            else if (restrictPermutations)                       // repeats allowed, any order: C(size + times - 1, times)
+                ways = ways.multiply(BigInteger.valueOf(size + i)).divide(BigInteger.valueOf(i + 1));
+            else                                                 // distinct words, ordered by addTo()
+                ways = ways.multiply(BigInteger.valueOf(size - i));
+        }
+
+        return ways.max(BigInteger.ZERO);
+    }
+
+    private static final class MemoKey {
+        private final LetterCount remaining;
+        private final int firstGroup;
+
+        private MemoKey(LetterCount remaining, int firstGroup) {
+            this.remaining = remaining;
+            this.firstGroup = firstGroup;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof MemoKey)) return false;
+
+            MemoKey other = (MemoKey) o;
+
+            return firstGroup == other.firstGroup && remaining.equals(other.remaining);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * remaining.hashCode() + firstGroup;
+        }
+    }
+
+}
@@ -4,6 +4,13 @@ import org.kotopka.parser.Parser;
 import org.kotopka.parser.Switch;
 import org.kotopka.dictionary.Dictionary;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * {@code AnagramFactory} - Creates an Anagram object from commandline
  * options passed to the {@code Parser} object and the {@code Dictionary} object.
@@ -23,6 +30,55 @@ public final class AnagramFactory {
                 .setStartFrom(parser.getOption(Switch.START_FROM).getString())
                 .setIncludeWord(parser.getOption(Switch.INCLUDE_WORD).getString())
                 .setExcludeWord(parser.getOption(Switch.EXCLUDE_WORD).getString())
-                .setIncludeWordWithSuffix(parser.getOption(Switch.INCLUDE_WORD_WITH_SUFFIX).getString());
+                .setIncludeWordWithSuffix(parser.getOption(Switch.INCLUDE_WORD_WITH_SUFFIX).getString())
+                .setParallelism(Math.max(parser.getOption(Switch.PARALLELISM).getInt(), 1))
+                .setSubWordCacheSize(parser.getOption(Switch.SUB_WORD_CACHE_SIZE).getInt())
+                .setShouldBranchOnRarestLetter(parser.getOption(Switch.RAREST_LETTER_FIRST).getBool());
+    }
+
+    public static AnagramScorer getScorer(Parser parser) {
+        String scoreBy = parser.getOption(Switch.SCORE_BY).getString();
+
+        switch (scoreBy) {
+            case "words":
+                return AnagramScorer.fewestWords();
+            case "length":
+                return AnagramScorer.longestShortestWord();
+            default:
+                return readWordFrequencies(scoreBy);
+        }
     }
+
+    // each line holds a word and its count, the weight of a word is the log of its share of all the counts
+    // and words that aren't in the file weigh as much as a word seen half a time
+    private static AnagramScorer readWordFrequencies(String filename) {
+        Map<String, Double> counts = new HashMap<>();
+        double total = 0;
+
+        try {
+            List<String> lines = Files.readAllLines(Paths.get(filename));
+
+            for (String line : lines) {
+                String[] fields = line.trim().split("\\s+");
+
+                if (fields.length < 2) continue;
+
+                double count = Double.parseDouble(fields[1]);
+
+                counts.merge(fields[0], count, Double::sum);
+                total += count;
+            }
+        } catch (IOException | NumberFormatException e) {
+            System.err.println("Error reading word frequency file!");
+            System.exit(-1);
+        }
+
+        Map<String, Double> weights = new HashMap<>();
+
+        for (Map.Entry<String, Double> entry : counts.entrySet())
+            weights.put(entry.getKey(), Math.log(entry.getValue() / total));
+
+        return AnagramScorer.wordWeights(weights, Math.log(0.5 / Math.max(total, 1)));
+    }
+
 }
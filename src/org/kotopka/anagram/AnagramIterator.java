@@ -0,0 +1,273 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.*;
+
+/**
+ * {@code AnagramIterator} - The single-threaded multi-word anagram search as an {@code Iterator}. Instead of recursing,
+ * the search keeps an explicit stack of levels in arrays allocated up front: the candidate sub-words of each level,
+ * the position reached in each level and the sub-word chosen at each level, while the remaining letters are updated
+ * in place. Nothing is allocated per node, only per anagram found.
+ *
+ * <p>The search runs only while {@code hasNext()} looks for the next anagram, so it can be suspended between
+ * anagrams for as long as needed and resumed by asking for the next one. The timeout counts the time spent searching,
+ * not the time spent suspended. Anagrams come out in the same order as from the recursive search.</p>
+ */
+public final class AnagramIterator implements Iterator<String> {
+
+    private final String[] subWords;
+    private final LetterCount[] subWordCounts;
+    private final boolean[] hasSuffix;
+    private final int[] allSubWords;
+    private final int maxResults;
+    private final int maxWordsInAnagram;
+    private final SearchLimit searchLimit;
+    private final String includeWord;
+    private final LetterCount includeWordCount;
+    private final String suffix;
+    private final boolean excludeDuplicates;
+    private final boolean restrictPermutations;
+
+    private final LetterCount remaining;
+    private final boolean[] excludedSubWords;
+    private final int[] anagram;
+    private final int[][] subWordsByDepth;
+    private final int[] subWordCountByDepth;
+    private final int[] positionByDepth;
+    private final boolean[] appliedByDepth;
+    private final boolean[] solvableByDepth;
+    private final Map<LetterCount, Integer> deadEnds;
+    private int depth;
+
+    private String nextAnagram;
+    private boolean finished;
+    private int resultCount;
+
+    AnagramIterator(String[] subWords, LetterCount[] subWordCounts, boolean[] hasSuffix, int[] allSubWords,
+                    LetterCount letters, boolean[] excludedSubWords, int startIndex, int maxResults,
+                    int maxWordsInAnagram, SearchLimit searchLimit, String includeWord, String suffix,
+                    boolean excludeDuplicates, boolean restrictPermutations) {
+        this.subWords = subWords;
+        this.subWordCounts = subWordCounts;
+        this.hasSuffix = hasSuffix;
+        this.allSubWords = allSubWords;
+        this.maxResults = maxResults;
+        this.maxWordsInAnagram = maxWordsInAnagram;
+        this.searchLimit = searchLimit;
+        this.includeWord = includeWord;
+        this.includeWordCount = LetterCount.of(includeWord);
+        this.suffix = suffix;
+        this.excludeDuplicates = excludeDuplicates;
+        this.restrictPermutations = restrictPermutations;
+
+        int maxDepth = letters.size();
+
+        this.remaining = letters.copy();
+        this.excludedSubWords = excludedSubWords;
+        this.anagram = new int[maxDepth];
+        this.subWordsByDepth = new int[maxDepth][subWords.length];
+        this.subWordCountByDepth = new int[maxDepth];
+        this.positionByDepth = new int[maxDepth];
+        this.appliedByDepth = new boolean[maxDepth];
+        this.solvableByDepth = new boolean[maxDepth];
+        this.deadEnds = excludeDuplicates ? null : new HashMap<>();
+
+        if (maxDepth == 0)
+            finished = true;
+        else
+            enterLevel(0, allSubWords, startIndex, allSubWords.length);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (nextAnagram == null && !finished)
+            nextAnagram = search();
+
+        return nextAnagram != null;
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext()) throw new NoSuchElementException();
+
+        String anagram = nextAnagram;
+        nextAnagram = null;
+
+        return anagram;
+    }
+
+    // whether the search was stopped early by the token or the timeout, see SearchLimit.isTruncated()
+    public boolean isTruncated() { return searchLimit.isTruncated(); }
+
+    // runs the search until the next anagram is found, leaving the stack where it was found so the search can
+    // pick up right after it on the next call
+    private String search() {
+        searchLimit.resume();
+
+        try {
+            while (depth >= 0 && resultCount < maxResults) {
+                if (searchLimit.isStopped())
+                    break;
+
+                int level = depth;
+
+                if (appliedByDepth[level])
+                    undoSubWord(level);
+
+                int[] validSubWords = subWordsByDepth[level];
+                int position = ++positionByDepth[level];
+
+                while (position < subWordCountByDepth[level] && excludedSubWords[validSubWords[position]])
+                    position = ++positionByDepth[level];
+
+                if (position >= subWordCountByDepth[level]) {
+                    leaveLevel();
+                    continue;
+                }
+
+                int subWord = validSubWords[position];
+
+                applySubWord(level, subWord);
+
+                if (isAnagramValid(level + 1)) {
+                    solvableByDepth[level] = true;
+                    resultCount++;
+
+                    return toAnagramString(level + 1);
+                }
+
+                // cut short by the word limit or the include word rather than proven unsolvable
+                if (remaining.isEmpty() || level + 1 >= maxWordsInAnagram || isIncludeWordRuledOut(level + 1)) {
+                    solvableByDepth[level] = true;
+                    continue;
+                }
+
+                // with restricted permutations only the sub-words from this one on can follow, see
+                // Anagram.continueBuildingAnagramRecursively()
+                if (isDeadEnd(restrictPermutations ? subWord : 0))
+                    continue;
+
+                if (restrictPermutations)
+                    enterLevel(level + 1, validSubWords, position, subWordCountByDepth[level]);
+                else
+                    enterLevel(level + 1, allSubWords, 0, allSubWords.length);
+            }
+
+            finished = true;
+
+            return null;
+        } finally {
+            searchLimit.suspend();
+        }
+    }
+
+    private void enterLevel(int level, int[] candidates, int from, int to) {
+        int[] validSubWords = subWordsByDepth[level];
+        int count = 0;
+
+        for (int i = from; i < to; i++)
+            if (remaining.contains(subWordCounts[candidates[i]]))
+                validSubWords[count++] = candidates[i];
+
+        // a level without any word with the suffix is skipped, see Anagram.isSuffixRuledOut()
+        boolean suffixRuledOut = isSuffixRuledOut(level, validSubWords, count);
+
+        subWordCountByDepth[level] = suffixRuledOut ? 0 : count;
+        positionByDepth[level] = -1;
+        appliedByDepth[level] = false;
+        solvableByDepth[level] = suffixRuledOut;
+        depth = level;
+    }
+
+    private boolean isSuffixRuledOut(int length, int[] validSubWords, int count) {
+        if (hasSuffix == null) return false;
+
+        for (int i = 0; i < length; i++)
+            if (hasSuffix[anagram[i]]) return false;
+
+        for (int i = 0; i < count; i++)
+            if (hasSuffix[validSubWords[i]]) return false;
+
+        return true;
+    }
+
+    private boolean isIncludeWordRuledOut(int length) {
+        if (includeWord.isBlank() || remaining.contains(includeWordCount)) return false;
+
+        for (int i = 0; i < length; i++)
+            if (subWords[anagram[i]].equals(includeWord)) return false;
+
+        return true;
+    }
+
+    // a level is done once all of its sub-words have been tried, the sub-word chosen on the level above is still
+    // applied so the remaining letters are the ones the finished level started out with
+    private void leaveLevel() {
+        boolean solvable = solvableByDepth[depth--];
+
+        if (depth < 0) return;
+
+        if (!solvable)
+            addDeadEnd(restrictPermutations ? anagram[depth] : 0);
+
+        solvableByDepth[depth] |= solvable;
+    }
+
+    private void applySubWord(int level, int subWord) {
+        if (excludeDuplicates)
+            excludedSubWords[subWord] = true;
+
+        remaining.subtract(subWordCounts[subWord]);
+        anagram[level] = subWord;
+        appliedByDepth[level] = true;
+    }
+
+    private void undoSubWord(int level) {
+        int subWord = anagram[level];
+
+        if (excludeDuplicates)
+            excludedSubWords[subWord] = false;
+
+        remaining.add(subWordCounts[subWord]);
+        appliedByDepth[level] = false;
+    }
+
+    private boolean isDeadEnd(int firstSubWord) {
+        if (deadEnds == null) return false;
+
+        Integer deadFrom = deadEnds.get(remaining);
+
+        return deadFrom != null && deadFrom <= firstSubWord;
+    }
+
+    private void addDeadEnd(int firstSubWord) {
+        if (deadEnds != null && deadEnds.size() < Anagram.MAX_DEAD_ENDS)
+            deadEnds.merge(remaining.copy(), firstSubWord, Math::min);
+    }
+
+    private boolean isAnagramValid(int length) {
+        if (!remaining.isEmpty() || length > maxWordsInAnagram) return false;
+
+        boolean wordWithSuffixFound = suffix.isBlank();
+        boolean includeWordFound = includeWord.isBlank();
+
+        for (int i = 0; i < length; i++) {
+            wordWithSuffixFound |= subWords[anagram[i]].endsWith(suffix);
+            includeWordFound |= subWords[anagram[i]].equals(includeWord);
+        }
+
+        return wordWithSuffixFound && includeWordFound;
+    }
+
+    private String toAnagramString(int length) {
+        StringJoiner joiner = new StringJoiner(" ");
+
+        // most recently added word first, the same order as the recursive search
+        for (int i = length - 1; i >= 0; i--)
+            joiner.add(subWords[anagram[i]]);
+
+        return joiner.toString();
+    }
+
+}
@@ -0,0 +1,97 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * {@code AnagramScorer} - Scores anagrams for {@code Anagram.findTopAnagramsOf()}, higher scores being better. Since
+ * the ranked search prunes with it, a scorer has to be able to bound the score of any anagram a partial one could
+ * still turn into, see {@code bound()}.
+ */
+public interface AnagramScorer {
+
+    /**
+     * {@code bound()} - Gets an optimistic bound on the score of a partial anagram: no anagram completing it with the
+     * remaining letters may score higher. The tighter the bound, the more of the search can be pruned.
+     * @param words the words of the partial anagram, in the order they were chosen
+     * @param length the number of words in the partial anagram
+     * @param remainingLetters the number of letters still to be used up, {@code 0} for a complete anagram
+     * @return the bound, which for a complete anagram is its score
+     */
+    double bound(String[] words, int length, int remainingLetters);
+
+    default double score(String[] words, int length) {
+        return bound(words, length, 0);
+    }
+
+    /**
+     * {@code fewestWords()} - Scores anagrams with fewer words higher
+     * @return the scorer
+     */
+    static AnagramScorer fewestWords() {
+        // any remaining letters take at least one more word
+        return (words, length, remainingLetters) -> -(length + (remainingLetters > 0 ? 1 : 0));
+    }
+
+    /**
+     * {@code longestShortestWord()} - Scores anagrams by the number of letters in their shortest word
+     * @return the scorer
+     */
+    static AnagramScorer longestShortestWord() {
+        return (words, length, remainingLetters) -> {
+            // any remaining letters go to words no longer than the letters left
+            int shortest = (remainingLetters > 0) ? remainingLetters : Integer.MAX_VALUE;
+
+            for (int i = 0; i < length; i++)
+                shortest = Math.min(shortest, countLetters(words[i]));
+
+            return shortest;
+        };
+    }
+
+    /**
+     * {@code wordWeights()} - Scores anagrams by the sum of the weights of their words, e.g. the log frequencies of
+     * the words so that anagrams of common words come first. Weights are looked up by the lowercase word.
+     * @param weights the weight of each word
+     * @param defaultWeight the weight of a word without a weight of its own
+     * @return the scorer
+     */
+    static AnagramScorer wordWeights(Map<String, Double> weights, double defaultWeight) {
+        Objects.requireNonNull(weights, "Weights cannot be null");
+
+        Map<String, Double> lowercaseWeights = new HashMap<>();
+
+        weights.forEach((word, weight) -> lowercaseWeights.put(word.toLowerCase(), weight));
+
+        double maxWeight = lowercaseWeights.values().stream().mapToDouble(Double::doubleValue).max()
+                .orElse(defaultWeight);
+        double bestWeight = Math.max(maxWeight, defaultWeight);
+
+        return (words, length, remainingLetters) -> {
+            double sum = 0;
+
+            for (int i = 0; i < length; i++)
+                sum += lowercaseWeights.getOrDefault(words[i].toLowerCase(), defaultWeight);
+
+            // the remaining letters take at least one more word and at most one word per letter
+            if (remainingLetters > 0)
+                sum += (bestWeight > 0) ? bestWeight * remainingLetters : bestWeight;
+
+            return sum;
+        };
+    }
+
+    // the letters of a word as the search counts them, apostrophes and the like included but not spaces
+    private static int countLetters(String word) {
+        int letters = 0;
+
+        for (int i = 0; i < word.length(); i++)
+            if (LetterCount.indexOf(Character.toLowerCase(word.charAt(i))) >= 0) letters++;
+
+        return letters;
+    }
+
+}
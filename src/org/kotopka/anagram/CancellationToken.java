@@ -0,0 +1,18 @@
+package org.kotopka.anagram;
+
+/**
+ * {@code CancellationToken} - Lets a search be stopped from another thread, e.g. by a cancel button. Pass it to
+ * {@code Anagram.setCancellationToken()} before starting the search and call {@code cancel()} at any time to stop it,
+ * the search unwinds within a few thousand nodes. Whether a search was cut short is told by its {@code SearchLimit}.
+ *
+ * <p>A cancelled token stays cancelled, so a new search needs a new token.</p>
+ */
+public final class CancellationToken {
+
+    private volatile boolean cancelled;
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+
+}
@@ -0,0 +1,112 @@
+package org.kotopka.anagram;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * {@code FactorizedAnagram} - An anagram found by the key-level search, kept as a sequence of factors instead of a
+ * phrase. Each factor is a list of interchangeable words with the same letters together with the number of words
+ * the anagram takes from it, so a single {@code FactorizedAnagram} stands for every phrase that can be put together
+ * by picking the words of each factor.
+ *
+ * <p>The phrases are only put together by {@code expand()}. Like anagrams found with restricted permutations, each
+ * set of words is expanded once, and with duplicates excluded the words picked from a factor are all different.</p>
+ */
+public final class FactorizedAnagram {
+
+    private final List<List<String>> wordLists;
+    private final int[] multiplicities;
+    private final boolean distinctWords;
+    private final int wordCount;
+
+    FactorizedAnagram(List<List<String>> wordLists, int[] multiplicities, boolean distinctWords) {
+        this.wordLists = List.copyOf(wordLists);
+        this.multiplicities = multiplicities.clone();
+        this.distinctWords = distinctWords;
+        this.wordCount = Arrays.stream(multiplicities).sum();
+    }
+
+    public int getFactorCount() { return wordLists.size(); }
+
+    public List<String> getWordsOf(int factor) { return wordLists.get(factor); }
+
+    public int getMultiplicityOf(int factor) { return multiplicities[factor]; }
+
+    public int getWordCount() { return wordCount; }
+
+    /**
+     * {@code count()} - Counts the phrases this anagram expands to without expanding them
+     * @return the number of phrases
+     */
+    public BigInteger count() {
+        BigInteger count = BigInteger.ONE;
+
+        for (int f = 0; f < multiplicities.length; f++) {
+            int size = wordLists.get(f).size();
+            int times = multiplicities[f];
+
+            // C(size, times) for distinct words, C(size + times - 1, times) when a word can be picked again
+            for (int i = 0; i < times; i++) {
+                int available = distinctWords ? size - i : size + i;
+
+                count = count.multiply(BigInteger.valueOf(available)).divide(BigInteger.valueOf(i + 1));
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * {@code expand()} - Puts together each phrase this anagram stands for and passes it to the consumer
+     * @param consumer the consumer to pass each phrase to
+     */
+    public void expand(Consumer<String> consumer) {
+        Objects.requireNonNull(consumer, "Consumer cannot be null");
+
+        expand(0, 0, 0, new String[wordCount], 0, consumer);
+    }
+
+    public List<String> expand() {
+        List<String> phrases = new ArrayList<>();
+
+        expand(phrases::add);
+
+        return phrases;
+    }
+
+    // the words picked from a factor never go back to an earlier word of the factor, which keeps
+    // each set of words from being put together more than once
+    private void expand(int factor, int picked, int firstWord, String[] phrase, int length, Consumer<String> consumer) {
+        if (factor == multiplicities.length) {
+            consumer.accept(String.join(" ", phrase));
+            return;
+        }
+
+        if (picked == multiplicities[factor]) {
+            expand(factor + 1, 0, 0, phrase, length, consumer);
+            return;
+        }
+
+        List<String> words = wordLists.get(factor);
+
+        for (int w = firstWord; w < words.size(); w++) {
+            phrase[length] = words.get(w);
+            expand(factor, picked + 1, distinctWords ? w + 1 : w, phrase, length + 1, consumer);
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringJoiner joiner = new StringJoiner(" ");
+
+        for (int f = 0; f < multiplicities.length; f++) {
+            String factor = "[" + String.join("|", wordLists.get(f)) + "]";
+
+            joiner.add(multiplicities[f] > 1 ? factor + "x" + multiplicities[f] : factor);
+        }
+
+        return joiner.toString();
+    }
+
+}
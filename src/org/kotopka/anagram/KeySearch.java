@@ -0,0 +1,161 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * {@code KeySearch} - Finds multi-word anagrams over groups of words with the same letters instead of over the words
+ * themselves. Each group is tried once per number of its words that fit, so a group of ten interchangeable words
+ * costs the search as much as a single word would, and each anagram found is passed on as a
+ * {@code FactorizedAnagram} to be expanded into phrases only if needed.
+ *
+ * <p>The groups are searched in a fixed order and only later groups can follow a group, so every set of groups is
+ * found once. Words that have to be included are kept in groups of their own so that whether an anagram includes
+ * them is decided by its groups alone.</p>
+ */
+final class KeySearch {
+
+    private final LetterCount[] groupCounts;
+    private final List<List<String>> groupWords;
+    private final boolean[] isIncludeWord;
+    private final boolean[] hasSuffix;
+    private final boolean needsIncludeWord;
+    private final boolean needsSuffix;
+    private final int maxWords;
+    private final boolean excludeDuplicates;
+    private final int maxResults;
+    private final SearchLimit searchLimit;
+
+    private final Map<LetterCount, Integer> deadEnds;
+    private int[][] groupsByDepth;
+    private int[] factors;
+    private int[] multiplicities;
+    private Consumer<FactorizedAnagram> consumer;
+    private int resultCount;
+
+    KeySearch(LetterCount[] groupCounts, List<List<String>> groupWords, boolean[] isIncludeWord, boolean[] hasSuffix,
+              boolean needsIncludeWord, boolean needsSuffix, int maxWords, boolean excludeDuplicates, int maxResults,
+              SearchLimit searchLimit) {
+        this.groupCounts = groupCounts;
+        this.groupWords = groupWords;
+        this.isIncludeWord = isIncludeWord;
+        this.hasSuffix = hasSuffix;
+        this.needsIncludeWord = needsIncludeWord;
+        this.needsSuffix = needsSuffix;
+        this.maxWords = maxWords;
+        this.excludeDuplicates = excludeDuplicates;
+        this.maxResults = maxResults;
+        this.searchLimit = searchLimit;
+        this.deadEnds = new HashMap<>();
+    }
+
+    void search(LetterCount letters, Consumer<FactorizedAnagram> consumer) {
+        int[] allGroups = new int[groupCounts.length];
+
+        for (int i = 0; i < allGroups.length; i++)
+            allGroups[i] = i;
+
+        this.groupsByDepth = new int[letters.size() + 1][];
+        this.factors = new int[letters.size()];
+        this.multiplicities = new int[letters.size()];
+        this.consumer = consumer;
+        this.resultCount = 0;
+
+        if (!letters.isEmpty())
+            search(letters.copy(), allGroups, 0, allGroups.length, 0, 0);
+    }
+
+    // like the word search, returns false only when it has proven that the remaining letters can't be used up by
+    // the candidate groups, anything cut short by the limits counts as possibly solvable
+    private boolean search(LetterCount remaining, int[] candidates, int from, int to, int depth, int words) {
+        int[] groups = getGroupsAtDepth(depth);
+        int count = 0;
+
+        for (int i = from; i < to; i++)
+            if (remaining.contains(groupCounts[candidates[i]]))
+                groups[count++] = candidates[i];
+
+        if (count == 0)
+            return false;
+
+        // the groups that fit are all that decide the outcome so the first of them stands for the whole list,
+        // and a dead end from some group on is a dead end from any later group too
+        Integer deadFrom = deadEnds.get(remaining);
+
+        if (deadFrom != null && deadFrom <= groups[0])
+            return false;
+
+        boolean solvable = false;
+
+        for (int i = 0; i < count; i++) {
+            int group = groups[i];
+            int maxTimes = excludeDuplicates ? groupWords.get(group).size() : Integer.MAX_VALUE;
+            int times = 0;
+
+            factors[depth] = group;
+
+            while (remaining.contains(groupCounts[group]) && times < maxTimes) {
+                if (words + times + 1 > maxWords) {
+                    solvable = true; // cut short by the word limit rather than proven unsolvable
+                    break;
+                }
+
+                remaining.subtract(groupCounts[group]);
+                multiplicities[depth] = ++times;
+
+                if (remaining.isEmpty()) {
+                    solvable = true;
+                    emitIfValid(depth + 1);
+                } else {
+                    solvable |= search(remaining, groups, i + 1, count, depth + 1, words + times);
+                }
+
+                if (isStopped()) break;
+            }
+
+            for (int t = 0; t < times; t++)
+                remaining.add(groupCounts[group]);
+
+            if (isStopped()) return true;
+        }
+
+        if (!solvable)
+            deadEnds.merge(remaining.copy(), groups[0], Math::min);
+
+        return solvable;
+    }
+
+    private boolean isStopped() {
+        return resultCount >= maxResults || searchLimit.isStopped();
+    }
+
+    private void emitIfValid(int length) {
+        boolean includeWordFound = !needsIncludeWord;
+        boolean suffixFound = !needsSuffix;
+
+        for (int i = 0; i < length; i++) {
+            includeWordFound |= isIncludeWord[factors[i]];
+            suffixFound |= hasSuffix[factors[i]];
+        }
+
+        if (!includeWordFound || !suffixFound) return;
+
+        List<List<String>> wordLists = new ArrayList<>(length);
+
+        for (int i = 0; i < length; i++)
+            wordLists.add(groupWords.get(factors[i]));
+
+        resultCount++;
+        consumer.accept(new FactorizedAnagram(wordLists, Arrays.copyOf(multiplicities, length), excludeDuplicates));
+    }
+
+    private int[] getGroupsAtDepth(int depth) {
+        if (groupsByDepth[depth] == null)
+            groupsByDepth[depth] = new int[groupCounts.length];
+
+        return groupsByDepth[depth];
+    }
+
+}
@@ -0,0 +1,315 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * {@code MeetInTheMiddleSearch} - Finds each set of up to four sub-words that uses up the letters of a phrase exactly
+ * once by joining halves instead of searching all the way down. The sub-words are grouped by their letters, and each
+ * group of letters and each pair of groups gets a signature of its letters. Every set of groups is then a first
+ * group, or a first pair of groups, joined with the single group or the pair of groups whose signature is that of
+ * the letters left over, which is a lookup rather than another two levels of search.
+ *
+ * <p>A signature counts the letters in a mixed radix with one digit per letter of the phrase, the base of each digit
+ * being one more than the number of times the letter is in the phrase, so the signatures of the letters inside a
+ * phrase are distinct and adding or taking away letters is adding or subtracting their signatures. That only works
+ * while the signature of the whole phrase fits in a {@code long}, roughly up to 60 letters.</p>
+ *
+ * <p>The groups are ordered longest first and a set of groups is only put together in that order, so each set comes
+ * out once and the last pair of a set of four is always its two shortest groups. Only the pairs making up at most
+ * half the phrase are indexed, and if there are more of those than {@code MAX_INDEXED_PAIRS} the search doesn't run
+ * at all, which keeps the memory it takes bounded.</p>
+ */
+final class MeetInTheMiddleSearch {
+
+    static final int MAX_WORDS = 4;
+    static final int MAX_INDEXED_PAIRS = 1 << 21;
+
+    // an open-addressing table from signatures to ints, with linear probing. signatures are never negative, so an
+    // empty slot is marked with -1
+    private static final class SignatureTable {
+        private final long[] keys;
+        private final int[] values;
+        private final int mask;
+
+        private SignatureTable(int expectedSize) {
+            int capacity = Integer.highestOneBit(Math.max(expectedSize, 8) * 2 - 1) << 1;
+
+            this.keys = new long[capacity];
+            this.values = new int[capacity];
+            this.mask = capacity - 1;
+
+            Arrays.fill(keys, -1);
+        }
+
+        private int slotOf(long key) {
+            int slot = Long.hashCode(key * 0x9E3779B97F4A7C15L) & mask;
+
+            while (keys[slot] != key && keys[slot] != -1)
+                slot = (slot + 1) & mask;
+
+            return slot;
+        }
+
+        private int get(long key, int missing) {
+            int slot = slotOf(key);
+
+            return (keys[slot] == key) ? values[slot] : missing;
+        }
+
+        private void put(long key, int value) {
+            int slot = slotOf(key);
+
+            keys[slot] = key;
+            values[slot] = value;
+        }
+    }
+
+    private final LetterCount[] subWordCounts;
+    private final int maxWords;
+    private final boolean excludeDuplicates;
+    private final SearchLimit searchLimit;
+
+    private LetterCount[] groupCounts;
+    private int[] groupSizes;
+    private long[] groupSignatures;
+    private int[][] groupWords;
+    private SignatureTable groupsBySignature;
+
+    // the pairs with the same signature are chained through nextPair, starting from the table
+    private SignatureTable pairsBySignature;
+    private int[] pairFirst;
+    private int[] pairSecond;
+    private int[] nextPair;
+
+    private Predicate<int[]> consumer;
+    private boolean stopped;
+
+    MeetInTheMiddleSearch(LetterCount[] subWordCounts, int maxWords, boolean excludeDuplicates,
+                          SearchLimit searchLimit) {
+        if (maxWords <= 0 || maxWords > MAX_WORDS)
+            throw new IllegalArgumentException("Max words must be from 1 to " + MAX_WORDS);
+
+        this.subWordCounts = subWordCounts;
+        this.maxWords = maxWords;
+        this.excludeDuplicates = excludeDuplicates;
+        this.searchLimit = searchLimit;
+    }
+
+    /**
+     * @param letters the letters of the phrase
+     * @param candidates the sub-words the sets of words can be made of
+     * @param consumer receives the indices of the words of each set found and returns false to stop the search
+     * @return false if the search couldn't be run on this phrase, in which case nothing has been passed on
+     */
+    boolean search(LetterCount letters, int[] candidates, Predicate<int[]> consumer) {
+        long[] weights = getLetterWeights(letters);
+
+        if (weights == null) return false;
+
+        groupCandidates(candidates, weights);
+
+        int size = letters.size();
+
+        if (maxWords == MAX_WORDS && !indexPairs(letters, size / 2))
+            return false;
+
+        this.consumer = consumer;
+        this.stopped = false;
+
+        long signature = signatureOf(letters, weights);
+        LetterCount rest = letters.copy();
+
+        for (int first = 0; first < groupCounts.length && !stopped; first++) {
+            // the first group is the longest of the set, so it takes up at least its share of the letters
+            if (groupSizes[first] * maxWords < size) break;
+            if (searchLimit.isStopped()) return true;
+            if (!rest.contains(groupCounts[first])) continue;
+
+            rest.subtract(groupCounts[first]);
+            joinWithRest(first, rest, signature - groupSignatures[first]);
+            rest.add(groupCounts[first]);
+        }
+
+        return true;
+    }
+
+    // the rest is a single group, or a second group joined with the single group or pair of groups left over
+    private void joinWithRest(int first, LetterCount rest, long restSignature) {
+        int size = rest.size();
+
+        if (size == 0) {
+            emit(first);
+            return;
+        }
+
+        if (maxWords < 2) return;
+
+        int last = groupsBySignature.get(restSignature, -1);
+
+        if (last >= first)
+            emit(first, last);
+
+        if (maxWords < 3) return;
+
+        for (int second = first; second < groupCounts.length && !stopped; second++) {
+            if (groupSizes[second] * (maxWords - 1) < size || searchLimit.isStopped()) break;
+            if (groupSizes[second] >= size || !rest.contains(groupCounts[second])) continue;
+
+            long leftOver = restSignature - groupSignatures[second];
+
+            last = groupsBySignature.get(leftOver, -1);
+
+            if (last >= second)
+                emit(first, second, last);
+
+            if (maxWords < 4) continue;
+
+            for (int pair = pairsBySignature.get(leftOver, -1); pair >= 0 && !stopped; pair = nextPair[pair])
+                if (pairFirst[pair] >= second)
+                    emit(first, second, pairFirst[pair], pairSecond[pair]);
+        }
+    }
+
+    // the weight of a letter is the product of the bases of the letters before it, null if the phrase is too long
+    private static long[] getLetterWeights(LetterCount letters) {
+        long[] weights = new long[LetterCount.ALPHABET_SIZE];
+        long weight = 1;
+
+        try {
+            for (int letter = 0; letter < LetterCount.ALPHABET_SIZE; letter++) {
+                weights[letter] = weight;
+                weight = Math.multiplyExact(weight, letters.getCount(letter) + 1);
+            }
+        } catch (ArithmeticException e) {
+            return null;
+        }
+
+        return weights;
+    }
+
+    private static long signatureOf(LetterCount letters, long[] weights) {
+        long signature = 0;
+
+        for (int letter = 0; letter < LetterCount.ALPHABET_SIZE; letter++)
+            signature += letters.getCount(letter) * weights[letter];
+
+        return signature;
+    }
+
+    private void groupCandidates(int[] candidates, long[] weights) {
+        Map<LetterCount, List<Integer>> groups = new HashMap<>();
+
+        for (int subWord : candidates)
+            groups.computeIfAbsent(subWordCounts[subWord], k -> new ArrayList<>()).add(subWord);
+
+        List<LetterCount> counts = new ArrayList<>(groups.keySet());
+
+        // longest first, and in the order of their first sub-words otherwise
+        counts.sort(Comparator.comparingInt(LetterCount::size).reversed()
+                .thenComparingInt(count -> groups.get(count).get(0)));
+
+        int groupCount = counts.size();
+
+        this.groupCounts = counts.toArray(new LetterCount[0]);
+        this.groupSizes = new int[groupCount];
+        this.groupSignatures = new long[groupCount];
+        this.groupWords = new int[groupCount][];
+        this.groupsBySignature = new SignatureTable(groupCount);
+
+        for (int g = 0; g < groupCount; g++) {
+            groupSizes[g] = groupCounts[g].size();
+            groupSignatures[g] = signatureOf(groupCounts[g], weights);
+            groupWords[g] = groups.get(groupCounts[g]).stream().mapToInt(Integer::intValue).sorted().toArray();
+            groupsBySignature.put(groupSignatures[g], g);
+        }
+    }
+
+    // the pairs which could be the last two groups of a set of four, i.e. those fitting in at most half the letters
+    private boolean indexPairs(LetterCount letters, int maxSize) {
+        int capacity = 1 << 10;
+        int pairCount = 0;
+        int[] firsts = new int[capacity];
+        int[] seconds = new int[capacity];
+        long[] signatures = new long[capacity];
+        LetterCount rest = letters.copy();
+
+        // the sizes only go down, so the groups short enough to be in a pair are the ones from here on
+        int from = 0;
+
+        while (from < groupCounts.length && groupSizes[from] >= maxSize)
+            from++;
+
+        for (int first = from; first < groupCounts.length; first++) {
+            if (!rest.contains(groupCounts[first])) continue;
+
+            rest.subtract(groupCounts[first]);
+
+            for (int second = first; second < groupCounts.length; second++) {
+                if (groupSizes[first] + groupSizes[second] > maxSize || !rest.contains(groupCounts[second]))
+                    continue;
+
+                if (pairCount == MAX_INDEXED_PAIRS) return false;
+
+                if (pairCount == capacity) {
+                    capacity *= 2;
+                    firsts = Arrays.copyOf(firsts, capacity);
+                    seconds = Arrays.copyOf(seconds, capacity);
+                    signatures = Arrays.copyOf(signatures, capacity);
+                }
+
+                firsts[pairCount] = first;
+                seconds[pairCount] = second;
+                signatures[pairCount++] = groupSignatures[first] + groupSignatures[second];
+            }
+
+            rest.add(groupCounts[first]);
+        }
+
+        this.pairFirst = firsts;
+        this.pairSecond = seconds;
+        this.nextPair = new int[pairCount];
+        this.pairsBySignature = new SignatureTable(pairCount);
+
+        for (int pair = 0; pair < pairCount; pair++) {
+            nextPair[pair] = pairsBySignature.get(signatures[pair], -1);
+            pairsBySignature.put(signatures[pair], pair);
+        }
+
+        return true;
+    }
+
+    // passes on every set of words the set of groups stands for, a group picked more than once giving its words in
+    // increasing order, or strictly increasing when duplicates are excluded
+    private void emit(int... groups) {
+        expand(groups, 0, 0, new int[groups.length]);
+    }
+
+    // a set of groups with many words to each can stand for a great many sets of words, so the limit is ticked on
+    // every one of them as well
+    private void expand(int[] groups, int position, int firstWord, int[] words) {
+        if (searchLimit.isStopped()) {
+            stopped = true;
+            return;
+        }
+
+        if (position == groups.length) {
+            stopped = !consumer.test(words.clone());
+            return;
+        }
+
+        int[] candidates = groupWords[groups[position]];
+        boolean sameAsNext = position + 1 < groups.length && groups[position + 1] == groups[position];
+
+        for (int w = firstWord; w < candidates.length && !stopped; w++) {
+            words[position] = candidates[w];
+
+            int nextFirstWord = sameAsNext ? (excludeDuplicates ? w + 1 : w) : 0;
+
+            expand(groups, position + 1, nextFirstWord, words);
+        }
+    }
+
+}
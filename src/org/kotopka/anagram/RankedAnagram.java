@@ -0,0 +1,25 @@
+package org.kotopka.anagram;
+
+/**
+ * {@code RankedAnagram} - An anagram found by {@code Anagram.findTopAnagramsOf()} along with its score.
+ */
+public final class RankedAnagram {
+
+    private final String anagram;
+    private final double score;
+
+    RankedAnagram(String anagram, double score) {
+        this.anagram = anagram;
+        this.score = score;
+    }
+
+    public String getAnagram() { return anagram; }
+
+    public double getScore() { return score; }
+
+    @Override
+    public String toString() {
+        return anagram + " (" + score + ")";
+    }
+
+}
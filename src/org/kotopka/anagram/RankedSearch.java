@@ -0,0 +1,211 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.*;
+
+/**
+ * {@code RankedSearch} - Finds the {@code k} best anagrams under an {@code AnagramScorer} with a branch-and-bound
+ * search. The best anagrams found so far are kept in a heap of at most {@code k} entries with the worst of them on
+ * top, and once the heap is full any partial anagram whose bound can't beat the worst of them is dropped along with
+ * everything that could follow it.
+ *
+ * <p>The sub-words are tried longest first, which tends to find anagrams of few long words early on and so raises
+ * the bar for the rest of the search sooner. Any fixed order works for restricted permutations, so the anagrams
+ * considered are the same as those of the word search.</p>
+ */
+final class RankedSearch {
+
+    private static final Comparator<RankedAnagram> WORST_FIRST =
+            Comparator.comparingDouble(RankedAnagram::getScore)
+                    .thenComparing(RankedAnagram::getAnagram, Comparator.reverseOrder());
+
+    private final String[] subWords;
+    private final LetterCount[] subWordCounts;
+    private final boolean[] excludedSubWords;
+    private final int[] rankOf;
+    private final int maxWordsInAnagram;
+    private final SearchLimit searchLimit;
+    private final String includeWord;
+    private final String suffix;
+    private final boolean excludeDuplicates;
+    private final boolean restrictPermutations;
+    private final AnagramScorer scorer;
+    private final int k;
+
+    private final PriorityQueue<RankedAnagram> best;
+    private final Map<LetterCount, Integer> deadEnds;
+    private LetterCount remaining;
+    private String[] words;
+    private int[][] subWordsByDepth;
+
+    RankedSearch(String[] subWords, LetterCount[] subWordCounts, boolean[] excludedSubWords, int maxWordsInAnagram,
+                 SearchLimit searchLimit, String includeWord, String suffix, boolean excludeDuplicates,
+                 boolean restrictPermutations, AnagramScorer scorer, int k) {
+        this.subWords = subWords;
+        this.subWordCounts = subWordCounts;
+        this.excludedSubWords = excludedSubWords;
+        this.rankOf = new int[subWords.length];
+        this.maxWordsInAnagram = maxWordsInAnagram;
+        this.searchLimit = searchLimit;
+        this.includeWord = includeWord;
+        this.suffix = suffix;
+        this.excludeDuplicates = excludeDuplicates;
+        this.restrictPermutations = restrictPermutations;
+        this.scorer = scorer;
+        this.k = k;
+        this.best = new PriorityQueue<>(WORST_FIRST);
+        this.deadEnds = excludeDuplicates ? null : new HashMap<>();
+    }
+
+    /**
+     * @param letters the letters of the phrase
+     * @param startFrom the first sub-word the anagrams can start with, see {@code Anagram.setStartFrom()}
+     * @return the best anagrams found, best first
+     */
+    List<RankedAnagram> search(LetterCount letters, String startFrom) {
+        Integer[] byLength = new Integer[subWords.length];
+
+        for (int i = 0; i < byLength.length; i++)
+            byLength[i] = i;
+
+        Arrays.sort(byLength, Comparator.comparingInt((Integer i) -> subWordCounts[i].size()).reversed()
+                .thenComparing(i -> i));
+
+        // with restricted permutations no sub-word before the start word can appear anywhere in an anagram,
+        // otherwise only the first sub-word is held to it
+        int[] ordered = new int[subWords.length];
+        int count = 0;
+
+        for (int i : byLength) {
+            rankOf[i] = count;
+
+            if (!restrictPermutations || subWords[i].compareTo(startFrom) >= 0)
+                ordered[count++] = i;
+        }
+
+        int[] firstLevel = new int[count];
+        int firstCount = 0;
+
+        for (int i = 0; i < count; i++)
+            if (subWords[ordered[i]].compareTo(startFrom) >= 0)
+                firstLevel[firstCount++] = ordered[i];
+
+        this.remaining = letters.copy();
+        this.words = new String[letters.size()];
+        this.subWordsByDepth = new int[letters.size() + 1][];
+
+        if (!letters.isEmpty())
+            search(firstLevel, 0, firstCount, Arrays.copyOf(ordered, count), 0);
+
+        List<RankedAnagram> ranked = new ArrayList<>(best);
+
+        ranked.sort(WORST_FIRST.reversed());
+
+        return ranked;
+    }
+
+    // as in the word search, returns false only when it has proven that the remaining letters can't be used up,
+    // anything pruned or cut short counts as possibly solvable
+    private boolean search(int[] candidates, int from, int to, int[] allSubWords, int depth) {
+        int[] validSubWords = getSubWordsAtDepth(depth);
+        int count = 0;
+
+        for (int i = from; i < to; i++)
+            if (remaining.contains(subWordCounts[candidates[i]]))
+                validSubWords[count++] = candidates[i];
+
+        boolean solvable = false;
+
+        for (int i = 0; i < count; i++) {
+            if (searchLimit.isStopped()) return true;
+
+            int subWord = validSubWords[i];
+
+            if (excludedSubWords[subWord])
+                continue;
+
+            if (excludeDuplicates)
+                excludedSubWords[subWord] = true;
+
+            remaining.subtract(subWordCounts[subWord]);
+            words[depth] = subWords[subWord];
+
+            if (remaining.isEmpty()) {
+                solvable = true;
+                offerIfValid(depth + 1);
+            } else if (depth + 1 >= maxWordsInAnagram || !canBeatWorst(depth + 1)) {
+                solvable = true;
+            } else {
+                solvable |= continueSearch(validSubWords, i, count, allSubWords, subWord, depth + 1);
+            }
+
+            remaining.add(subWordCounts[subWord]);
+
+            if (excludeDuplicates)
+                excludedSubWords[subWord] = false;
+        }
+
+        return solvable;
+    }
+
+    private boolean continueSearch(int[] validSubWords, int position, int count, int[] allSubWords, int subWord,
+                                   int depth) {
+        // the same dead end memo as the word search, with the sub-words ranked by length instead of alphabetically
+        int firstRank = restrictPermutations ? rankOf[subWord] : 0;
+        Integer deadFrom = (deadEnds != null) ? deadEnds.get(remaining) : null;
+
+        if (deadFrom != null && deadFrom <= firstRank)
+            return false;
+
+        boolean solvable = restrictPermutations ?
+                search(validSubWords, position, count, allSubWords, depth) :
+                search(allSubWords, 0, allSubWords.length, allSubWords, depth);
+
+        if (!solvable && deadEnds != null && deadEnds.size() < Anagram.MAX_DEAD_ENDS)
+            deadEnds.merge(remaining.copy(), firstRank, Math::min);
+
+        return solvable;
+    }
+
+    private boolean canBeatWorst(int length) {
+        return best.size() < k || scorer.bound(words, length, remaining.size()) > best.peek().getScore();
+    }
+
+    private void offerIfValid(int length) {
+        if (length > maxWordsInAnagram) return;
+
+        boolean wordWithSuffixFound = suffix.isBlank();
+        boolean includeWordFound = includeWord.isBlank();
+
+        for (int i = 0; i < length; i++) {
+            wordWithSuffixFound |= words[i].endsWith(suffix);
+            includeWordFound |= words[i].equals(includeWord);
+        }
+
+        if (!wordWithSuffixFound || !includeWordFound) return;
+
+        double score = scorer.score(words, length);
+
+        if (best.size() == k && score <= best.peek().getScore()) return;
+
+        StringJoiner joiner = new StringJoiner(" ");
+
+        // most recently added word first, the same order as the word search
+        for (int i = length - 1; i >= 0; i--)
+            joiner.add(words[i]);
+
+        best.add(new RankedAnagram(joiner.toString(), score));
+
+        if (best.size() > k)
+            best.poll();
+    }
+
+    private int[] getSubWordsAtDepth(int depth) {
+        if (subWordsByDepth[depth] == null)
+            subWordsByDepth[depth] = new int[subWords.length];
+
+        return subWordsByDepth[depth];
+    }
+
+}
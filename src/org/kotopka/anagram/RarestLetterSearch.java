@@ -0,0 +1,165 @@
+package org.kotopka.anagram;
+
+import org.kotopka.word.LetterCount;
+
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * {@code RarestLetterSearch} - Finds each set of sub-words that uses up the letters of a phrase exactly once. Every
+ * remaining letter has to end up in some word, so each level of the search picks the remaining letter found in the
+ * fewest candidate sub-words and only tries the sub-words containing it. A letter no candidate contains ends the
+ * branch straight away.
+ *
+ * <p>The same set of words could still be reached by covering the letter with each of its words in turn, so once a
+ * level has chosen a word for its letter, the sub-words containing that letter which come before the chosen word are
+ * ruled out below it. The only order left to find a set of words in is then the one where each level takes the first
+ * of the set's words containing its letter.</p>
+ */
+final class RarestLetterSearch {
+
+    private final String[] subWords;
+    private final LetterCount[] subWordCounts;
+    private final boolean[] hasSuffix;
+    private final long[] letterMasks;
+    private final int maxWords;
+    private final boolean excludeDuplicates;
+    private final SearchLimit searchLimit;
+
+    private LetterCount remaining;
+    private int[] chosen;
+    private int[][] candidatesByDepth;
+    private int[][] lettersByDepth;
+    private int slotCount;
+    private Predicate<int[]> consumer;
+    private boolean stopped;
+    private int suffixWords;
+
+    RarestLetterSearch(String[] subWords, LetterCount[] subWordCounts, boolean[] hasSuffix, int maxWords,
+                       boolean excludeDuplicates, SearchLimit searchLimit) {
+        this.subWords = subWords;
+        this.subWordCounts = subWordCounts;
+        this.hasSuffix = hasSuffix;
+        this.letterMasks = new long[subWords.length];
+        this.maxWords = maxWords;
+        this.excludeDuplicates = excludeDuplicates;
+        this.searchLimit = searchLimit;
+
+        for (int i = 0; i < subWords.length; i++)
+            for (int letter = 0; letter < LetterCount.ALPHABET_SIZE; letter++)
+                if (subWordCounts[i].getCount(letter) > 0) letterMasks[i] |= 1L << letter;
+    }
+
+    /**
+     * @param letters the letters of the phrase
+     * @param candidates the sub-words the sets of words can be made of, in increasing order
+     * @param consumer receives the indices of the words of each set found and returns false to stop the search
+     */
+    void search(LetterCount letters, int[] candidates, Predicate<int[]> consumer) {
+        this.remaining = letters.copy();
+        this.chosen = new int[letters.size()];
+        this.candidatesByDepth = new int[letters.size() + 1][];
+        this.lettersByDepth = new int[letters.size() + 1][LetterCount.ALPHABET_SIZE];
+        this.slotCount = letters.getSlotCount();
+        this.consumer = consumer;
+        this.stopped = false;
+        this.suffixWords = 0;
+
+        if (!letters.isEmpty())
+            search(candidates, candidates.length, 0);
+    }
+
+    // the candidates are the sub-words that fit the remaining letters and haven't been ruled out above
+    private void search(int[] candidates, int count, int depth) {
+        if (depth >= maxWords || searchLimit.isStopped() || isSuffixRuledOut(candidates, count)) return;
+
+        int letter = findRarestLetter(candidates, count, depth);
+
+        if (letter < 0) return;
+
+        long letterBit = 1L << letter;
+        int[] next = getCandidatesAtDepth(depth + 1);
+
+        for (int i = 0; i < count && !stopped; i++) {
+            int subWord = candidates[i];
+
+            if ((letterMasks[subWord] & letterBit) == 0)
+                continue;
+
+            remaining.subtract(subWordCounts[subWord]);
+            chosen[depth] = subWord;
+
+            if (hasSuffix != null && hasSuffix[subWord]) suffixWords++;
+
+            if (remaining.isEmpty()) {
+                int[] words = new int[depth + 1];
+
+                System.arraycopy(chosen, 0, words, 0, depth + 1);
+                stopped = !consumer.test(words);
+            } else {
+                int nextCount = 0;
+
+                // the sub-words with this level's letter before the chosen one are ruled out from here on, as is
+                // the chosen one itself when duplicates are excluded
+                for (int j = 0; j < count; j++) {
+                    int candidate = candidates[j];
+
+                    if ((letterMasks[candidate] & letterBit) != 0 &&
+                            (candidate < subWord || (excludeDuplicates && candidate == subWord)))
+                        continue;
+
+                    if (remaining.contains(subWordCounts[candidate]))
+                        next[nextCount++] = candidate;
+                }
+
+                search(next, nextCount, depth + 1);
+            }
+
+            if (hasSuffix != null && hasSuffix[subWord]) suffixWords--;
+
+            remaining.add(subWordCounts[subWord]);
+        }
+    }
+
+    // once none of the candidates has the suffix, none of the candidates of any level below has it either
+    private boolean isSuffixRuledOut(int[] candidates, int count) {
+        if (hasSuffix == null || suffixWords > 0) return false;
+
+        for (int i = 0; i < count; i++)
+            if (hasSuffix[candidates[i]]) return false;
+
+        return true;
+    }
+
+    // the remaining letter in the fewest candidates, or -1 if some remaining letter isn't in any of them
+    private int findRarestLetter(int[] candidates, int count, int depth) {
+        int[] tally = lettersByDepth[depth];
+
+        Arrays.fill(tally, 0, slotCount, 0);
+
+        for (int i = 0; i < count; i++)
+            for (long mask = letterMasks[candidates[i]]; mask != 0; mask &= mask - 1)
+                tally[Long.numberOfTrailingZeros(mask)]++;
+
+        int rarest = -1;
+
+        // the candidates fit in the phrase, so none of them has a letter past its slots
+        for (int letter = 0; letter < slotCount; letter++) {
+            if (remaining.getCount(letter) == 0) continue;
+            if (tally[letter] == 0) return -1;
+
+            if (rarest < 0 || tally[letter] < tally[rarest])
+                rarest = letter;
+        }
+
+        return rarest;
+    }
+
+    private int[] getCandidatesAtDepth(int depth) {
+        if (candidatesByDepth[depth] == null)
+            candidatesByDepth[depth] = new int[subWords.length];
+
+        return candidatesByDepth[depth];
+    }
+
+}
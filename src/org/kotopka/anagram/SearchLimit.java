@@ -0,0 +1,70 @@
+package org.kotopka.anagram;
+
+/**
+ * {@code SearchLimit} - The timeout and cancellation of a single search. Looking at the clock and at the token on
+ * every node would cost more than it's worth, so {@code isStopped()} only does so every {@code CHECK_INTERVAL} calls.
+ * Once the limit is hit it stays hit, so every level of the search sees it on its next check and unwinds at once.
+ * Whether it was hit is then kept here, for the search it was given to alone, see {@code isTruncated()}.
+ *
+ * <p>When a search is shared between worker threads the node count is shared without synchronization. A lost update
+ * only delays the next check a little, the stop itself is seen by every thread.</p>
+ */
+public final class SearchLimit {
+
+    static final int CHECK_INTERVAL = 1024;
+
+    private final CancellationToken token;
+    private final boolean hasTimeout;
+    private final boolean pausable;
+    private long deadline;
+    private long remainingTime;
+    private int untilCheck;
+    private volatile boolean stopped;
+
+    /**
+     * @param token the token to stop the search with
+     * @param timeoutInMillis the time the search may take, {@code Integer.MAX_VALUE} for no limit
+     * @param pausable whether {@code suspend()} stops the clock, otherwise the timeout is counted in wall-clock time
+     */
+    SearchLimit(CancellationToken token, long timeoutInMillis, boolean pausable) {
+        this.token = token;
+        this.hasTimeout = timeoutInMillis != Integer.MAX_VALUE;
+        this.pausable = pausable;
+        this.remainingTime = timeoutInMillis * 1_000_000;
+        this.untilCheck = 1; // check on the first node in case the token is cancelled already
+
+        this.deadline = System.nanoTime() + remainingTime;
+    }
+
+    boolean isStopped() {
+        if (stopped) return true;
+        if (--untilCheck > 0) return false;
+
+        untilCheck = CHECK_INTERVAL;
+
+        if (token.isCancelled() || (hasTimeout && System.nanoTime() - deadline > 0))
+            stopped = true;
+
+        return stopped;
+    }
+
+    /**
+     * {@code isTruncated()} - Tells whether the search was stopped by cancelling its token or by the timeout before it
+     * had searched everything, in which case only some of the anagrams were found. Unlike {@code isStopped()} it
+     * doesn't count a node.
+     * @return true if the search was stopped early
+     */
+    public boolean isTruncated() { return stopped; }
+
+    // the time between suspend() and resume() doesn't count towards the timeout
+    void suspend() {
+        if (pausable)
+            remainingTime = Math.max(deadline - System.nanoTime(), 0);
+    }
+
+    void resume() {
+        if (pausable)
+            deadline = System.nanoTime() + remainingTime;
+    }
+
+}
@@ -0,0 +1,116 @@
+package org.kotopka.anagram;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * {@code SubWordCache} - A size-bounded cache of the valid sub-words of a phrase, keyed by the sorted letters of the
+ * phrase. Once the cache holds {@code maxEntries} entries, adding another one evicts the least recently used entry.
+ * Hit, miss and eviction counts are kept to help choose a size.
+ *
+ * <p>The cache is safe to share between threads. The entries are kept in a {@code LinkedHashMap} in access order, so
+ * the least recently used entry is always the first one and evicting it takes constant time. The map is only locked
+ * to look up or add an entry, and the sub-words of a missing key are worked out without holding up lookups of other
+ * keys, so two threads missing the same key at once may both work it out.</p>
+ */
+public final class SubWordCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final LinkedHashMap<String, SortedSet<String>> cache;
+
+    // guarded by the cache
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    public SubWordCache(int maxEntries) {
+        if (maxEntries < 0) throw new IllegalArgumentException("Max entries cannot be negative");
+
+        this.maxEntries = maxEntries;
+        this.cache = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * {@code get()} - Gets the sub-words of the key, computing and caching them if they aren't in the cache
+     * @param key the sorted letters of the phrase
+     * @param subWordFunction computes the sub-words of a key which isn't cached
+     * @return an unmodifiable {@code SortedSet} of the sub-words
+     */
+    public SortedSet<String> get(String key, Function<String, SortedSet<String>> subWordFunction) {
+        synchronized (cache) {
+            SortedSet<String> subWords = cache.get(key); // moves the entry to the end as the most recently used
+
+            if (subWords != null) {
+                hits++;
+
+                return subWords;
+            }
+
+            misses++;
+        }
+
+        SortedSet<String> subWords = Collections.unmodifiableSortedSet(subWordFunction.apply(key));
+
+        if (maxEntries > 0) {
+            synchronized (cache) {
+                SortedSet<String> existing = cache.putIfAbsent(key, subWords);
+
+                if (existing != null)
+                    return existing;
+
+                if (cache.size() > maxEntries) {
+                    Iterator<String> eldest = cache.keySet().iterator();
+
+                    eldest.next();
+                    eldest.remove();
+                    evictions++;
+                }
+            }
+        }
+
+        return subWords;
+    }
+
+    public void clear() {
+        synchronized (cache) {
+            cache.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    public int getMaxEntries() { return maxEntries; }
+
+    public long getHits() {
+        synchronized (cache) {
+            return hits;
+        }
+    }
+
+    public long getMisses() {
+        synchronized (cache) {
+            return misses;
+        }
+    }
+
+    public long getEvictions() {
+        synchronized (cache) {
+            return evictions;
+        }
+    }
+
+    @Override
+    public String toString() {
+        synchronized (cache) {
+            return "Sub-word cache: " + cache.size() + "/" + maxEntries + " entries, " +
+                    hits + " hits, " + misses + " misses, " + evictions + " evictions";
+        }
+    }
+
+}
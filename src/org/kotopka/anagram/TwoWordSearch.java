@@ -0,0 +1,103 @@
+package org.kotopka.anagram;
+
+import org.kotopka.dictionary.Dictionary;
+import org.kotopka.word.LetterCount;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * {@code TwoWordSearch} - Finds the anagrams of a phrase made of one or two words without searching. For each group
+ * of words with the same letters inside the phrase, the group with the rest of the letters is looked up in the
+ * {@code Dictionary} by the signature of those letters, which is all there is to finding the two-word anagrams: a
+ * single pass over the groups with a primitive table probe each and no recursion.
+ *
+ * <p>A pair of groups would be found once from each side, so it's only taken from the group that comes first.
+ * Each set of words is passed on once with its words in alphabetical order, putting them in the orders the options
+ * call for is left to the caller.</p>
+ */
+final class TwoWordSearch {
+
+    private final Dictionary dictionary;
+    private final int maxWords;
+    private final SearchLimit searchLimit;
+
+    TwoWordSearch(Dictionary dictionary, int maxWords, SearchLimit searchLimit) {
+        this.dictionary = dictionary;
+        this.maxWords = maxWords;
+        this.searchLimit = searchLimit;
+    }
+
+    /**
+     * @param letters the letters of the phrase
+     * @param consumer receives the words of each set found and returns false to stop the search
+     */
+    void search(LetterCount letters, Predicate<String[]> consumer) {
+        for (int group : findGroupsWithin(letters)) {
+            if (searchLimit.isStopped()) return;
+
+            List<String> words = dictionary.getWordsInLetterGroup(group);
+            LetterCount rest = letters.copy();
+
+            rest.subtract(LetterCount.of(words.get(0)));
+
+            boolean keepGoing;
+
+            if (rest.isEmpty()) {
+                keepGoing = forEachWord(words, consumer);
+            } else if (maxWords < 2) {
+                keepGoing = true;
+            } else {
+                int restGroup = dictionary.findLetterGroup(rest);
+
+                if (restGroup < group)
+                    keepGoing = true; // not there, or found from the other side
+                else if (restGroup == group)
+                    keepGoing = forEachPairWithin(words, consumer);
+                else
+                    keepGoing = forEachPairAcross(words, dictionary.getWordsInLetterGroup(restGroup), consumer);
+            }
+
+            if (!keepGoing) return;
+        }
+    }
+
+    private List<Integer> findGroupsWithin(LetterCount letters) {
+        List<Integer> groups = new ArrayList<>();
+
+        dictionary.getKeyTrie().forEachLetterGroupWithin(letters, groups::add);
+
+        return groups;
+    }
+
+    private boolean forEachWord(List<String> words, Predicate<String[]> consumer) {
+        for (String word : words)
+            if (!consumer.test(new String[] { word })) return false;
+
+        return true;
+    }
+
+    // both words have the same letters, each pair is taken once and a word can be paired with itself
+    private boolean forEachPairWithin(List<String> words, Predicate<String[]> consumer) {
+        for (int i = 0; i < words.size(); i++)
+            for (int j = i; j < words.size(); j++)
+                if (!consumer.test(new String[] { words.get(i), words.get(j) })) return false;
+
+        return true;
+    }
+
+    private boolean forEachPairAcross(List<String> words, List<String> restWords, Predicate<String[]> consumer) {
+        for (String word : words) {
+            for (String restWord : restWords) {
+                String[] pair = (word.compareTo(restWord) <= 0) ?
+                        new String[] { word, restWord } :
+                        new String[] { restWord, word };
+
+                if (!consumer.test(pair)) return false;
+            }
+        }
+
+        return true;
+    }
+
+}
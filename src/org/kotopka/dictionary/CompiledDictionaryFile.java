@@ -0,0 +1,228 @@
+package org.kotopka.dictionary;
+
+import org.kotopka.word.LetterCount;
+import org.kotopka.word.Word;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * {@code CompiledDictionaryFile} - A binary dictionary file written by {@code DictionaryCompiler}, holding the tables
+ * of the {@code LetterGroupIndex} and the {@code KeyTrie} of a {@code Dictionary} as they are in memory. Opening one
+ * maps the file and makes each table a view of its part of the mapping, so nothing is copied, parsed, sorted or
+ * hashed and the first search has nothing left to build either. The pages of a table are only read in as a search
+ * gets to them, and the operating system keeps them cached from one run to the next.
+ *
+ * <p>The file layout, with all integers big-endian, is:</p>
+ * <pre>
+ *     int    magic number
+ *     int    format version
+ *     int    symbol count (s)
+ *     char[s]     the symbols with a LetterCount slot, in the order of their slots
+ *     the word pool
+ *         int    word count (w)
+ *         int    length of the word data (b)
+ *         int[w + 1]  offset of each word in the word data
+ *         byte[b]     word data, UTF-8, words sorted by their bytes
+ *     the letter groups
+ *         int    group count (g)
+ *         int[g + 1]  index of the first word id of each group
+ *         int[w]      word ids of the groups
+ *         byte[g]     1 if a group is made only of the letters a-z
+ *         int    capacity of the signature table (c)
+ *         long[c]     signature in each slot of the table, 0 if empty
+ *         int[c]      group in each slot of the table
+ *         the letters of the groups too long for a signature, as a word pool of k words
+ *         int[k]      group of each of those letters
+ *     the key lengths
+ *         int    shortest key length
+ *         int    longest key length
+ *         int[w]      key length of each word
+ *     the key trie
+ *         int    count of the nodes with a group
+ *         int    node count (n)
+ *         byte[n]     letter leading to each node
+ *         int[n]      group of each node, -1 if none
+ *         int[n]      first child of each node, -1 if none
+ *         int[n]      next sibling of each node, -1 if none
+ * </pre>
+ *
+ * <p>The signature table and the trie go by the slots of the letters in a {@code LetterCount}, and the symbols get
+ * theirs in the order they're first seen, which isn't the same from one run to the next. The symbols are therefore
+ * claimed in the order of the file before its tables are read, which gives them the same slots as when compiled
+ * unless some other symbol has taken one of those slots first. The two tables are then built again from the words
+ * instead, which takes about as long as reading a text dictionary.</p>
+ *
+ * <p>The compiled file holds the dictionary as it was when compiled. The word length limits and excluded words of the
+ * loading {@code Dictionary} are applied again by leaving words out of the tables, which is a single pass over them
+ * that copies the tables left, so one compiled file can serve different options. Options that leave out nothing, as
+ * the defaults do, use the tables of the file as they are.</p>
+ */
+final class CompiledDictionaryFile {
+
+    static final int MAGIC = 0x414E4744; // "ANGD"
+    static final int VERSION = 4;
+
+    private final LetterGroupIndex letterGroups;
+    private final KeyTrie keyTrie;
+
+    private CompiledDictionaryFile(LetterGroupIndex letterGroups, KeyTrie keyTrie) {
+        this.letterGroups = letterGroups;
+        this.keyTrie = keyTrie;
+    }
+
+    LetterGroupIndex getLetterGroups() { return letterGroups; }
+
+    KeyTrie getKeyTrie() { return keyTrie; }
+
+    static CompiledDictionaryFile open(Path file, int minWordLength, int maxWordLength, Set<String> excludeWordsSet)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IllegalArgumentException("Not a compiled dictionary file or unsupported version");
+
+            boolean sameSlots = claimSymbols(readChars(buffer, buffer.getInt()));
+            LetterGroupIndex groups = LetterGroupIndex.readFrom(buffer);
+
+            if (!sameSlots)
+                groups = groups.reindex();
+
+            int shortestKey = buffer.getInt();
+            int longestKey = buffer.getInt();
+            IntBuffer keyLengths = readInts(buffer, groups.getWordCount());
+            KeyTrie trie = sameSlots ? KeyTrie.readFrom(buffer, groups) : new KeyTrie(groups);
+            BitSet excluded = new BitSet();
+
+            for (String word : excludeWordsSet) {
+                int id = groups.getWordId(word);
+
+                if (id >= 0) excluded.set(id);
+            }
+
+            if (shortestKey >= minWordLength && longestKey <= maxWordLength && excluded.isEmpty())
+                return new CompiledDictionaryFile(groups, trie);
+
+            LetterGroupIndex retained = groups.retain(id -> keyLengths.get(id) >= minWordLength
+                    && keyLengths.get(id) <= maxWordLength && !excluded.get(id));
+
+            return (retained == groups) ?
+                    new CompiledDictionaryFile(groups, trie) :
+                    new CompiledDictionaryFile(retained, trie.retain(retained));
+        } catch (BufferUnderflowException | IndexOutOfBoundsException | NegativeArraySizeException
+                 | ArithmeticException e) {
+            throw new IllegalArgumentException("Truncated or corrupt compiled dictionary file", e);
+        }
+    }
+
+    // gives each symbol a slot, if it doesn't have one yet, and tells whether they all got the slots they had
+    private static boolean claimSymbols(String symbols) {
+        LetterCount.claimSymbols(symbols);
+
+        return LetterCount.getSymbols().startsWith(symbols);
+    }
+
+    static boolean isCompiledDictionary(Path file) {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(Integer.BYTES);
+
+            return header.length == Integer.BYTES && ByteBuffer.wrap(header).getInt() == MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void write(LetterGroupIndex groups, KeyTrie trie, Path file) throws IOException {
+        // the key length of each word is what the word length limits are checked against, as when reading a text file
+        int[] keyLengths = IntStream.range(0, groups.getWordCount()).parallel()
+                .map(id -> Word.keyLength(groups.getWord(id)))
+                .toArray();
+
+        // XXX: the loaded tables may be views of the very file being replaced, by this process or another one, so it
+        //  is never truncated in place. the new file is written next to it and moved over it in one step
+        Path target = file.toAbsolutePath();
+        Path temp = target.resolveSibling(target.getFileName() + "." + ProcessHandle.current().pid() + "-"
+                + System.nanoTime() + ".tmp");
+
+        try {
+            writeTables(groups, trie, keyLengths, temp);
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static void writeTables(LetterGroupIndex groups, KeyTrie trie, int[] keyLengths, Path file)
+            throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+
+            // the tables were built by these slots, any symbols seen since then only come after them
+            String symbols = LetterCount.getSymbols();
+
+            out.writeInt(symbols.length());
+            out.writeChars(symbols);
+
+            groups.writeTo(out);
+
+            out.writeInt(Arrays.stream(keyLengths).min().orElse(0));
+            out.writeInt(Arrays.stream(keyLengths).max().orElse(0));
+
+            for (int length : keyLengths) out.writeInt(length);
+
+            trie.writeTo(out);
+        }
+    }
+
+    // the readers take each table from the position of the buffer and move it past the table, the tables other than
+    // the symbols being views of that part of the buffer
+
+    static IntBuffer readInts(ByteBuffer buffer, int count) {
+        return readTable(buffer, Math.multiplyExact(count, Integer.BYTES)).asIntBuffer();
+    }
+
+    static LongBuffer readLongs(ByteBuffer buffer, int count) {
+        return readTable(buffer, Math.multiplyExact(count, Long.BYTES)).asLongBuffer();
+    }
+
+    static ByteBuffer readBytes(ByteBuffer buffer, int count) {
+        return readTable(buffer, count);
+    }
+
+    static String readChars(ByteBuffer buffer, int count) {
+        char[] values = new char[count];
+
+        buffer.asCharBuffer().get(values);
+        buffer.position(buffer.position() + count * Character.BYTES);
+
+        return new String(values);
+    }
+
+    private static ByteBuffer readTable(ByteBuffer buffer, int length) {
+        ByteBuffer table = buffer.slice(buffer.position(), length).order(buffer.order());
+
+        buffer.position(buffer.position() + length);
+
+        return table;
+    }
+
+}
@@ -1,12 +1,16 @@
 package org.kotopka.dictionary;
 
+import org.kotopka.word.LetterCount;
 import org.kotopka.word.Word;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -95,69 +99,258 @@ public class Dictionary {
 
     }
 
+    // a read-only view of the words of a letter group
+    private static final class GroupWordList extends AbstractList<String> implements RandomAccess {
+        private final LetterGroupIndex groups;
+        private final int start;
+        private final int size;
+
+        private GroupWordList(LetterGroupIndex groups, int group) {
+            this.groups = groups;
+            this.start = groups.getGroupStart(group);
+            this.size = groups.getGroupEnd(group) - start;
+        }
+
+        @Override
+        public String get(int index) {
+            Objects.checkIndex(index, size);
+
+            return groups.getWord(groups.getWordIdAt(start + index));
+        }
+
+        @Override
+        public int size() { return size; }
+    }
+
+    private static final int NOT_LETTERS_ONLY = -2;
+
     private final int minWordLength;
     private final int maxWordLength;
     private final Set<String> excludeWordsSet;
-    private final Map<String, List<String>> dictionary;
+    private final DictionaryIndex dictionary;
+    private final LetterGroupIndex letterGroups;
+    private volatile KeyTrie keyTrie;
 
     private Dictionary(Builder builder) {
         this.minWordLength = builder.minWordLength;
         this.maxWordLength = builder.maxWordLength;
         this.excludeWordsSet = builder.excludeWordsSet;
-        this.dictionary = new HashMap<>();
 
-        String excludeWordsFilename = builder.excludeWordsFilename;
+        // XXX: the exclude words file is read on another thread while the dictionary file is being read
+        CompletableFuture<Set<String>> excludeWordsFromFile =
+                CompletableFuture.supplyAsync(() -> readExcludeWords(builder.excludeWordsFilename));
+
+        // XXX: the words of a text dictionary are packed into the letter groups straight away, which then serve as
+        //  the index, rather than being held as a String and a list entry each, while a compiled dictionary holds
+        //  the letter groups and the key trie ready-made
+        if (CompiledDictionaryFile.isCompiledDictionary(builder.dictFile)) {
+            excludeWordsSet.addAll(excludeWordsFromFile.join());
+
+            CompiledDictionaryFile compiled = openCompiledDictionary(builder.dictFile);
+
+            this.letterGroups = compiled.getLetterGroups();
+            this.keyTrie = compiled.getKeyTrie();
+        } else {
+            this.letterGroups = indexDictionary(readDictionary(builder.dictFile, excludeWordsFromFile));
+        }
+
+        this.dictionary = letterGroups;
+    }
+
+    private static Set<String> readExcludeWords(String excludeWordsFilename) {
+        Set<String> words = new HashSet<>();
 
         if (!excludeWordsFilename.isBlank()) {
             try (Stream<String> ews = Files.lines(Paths.get(excludeWordsFilename))) {
-                ews.forEach(excludeWordsSet::add);
-            } catch (IOException e) {
+                ews.forEach(words::add);
+            } catch (IOException | UncheckedIOException e) {
                 System.err.println("Error reading exclude words file!");
                 System.exit(-1);
             }
         }
 
-        try (Stream<String> dfs = Files.lines(builder.dictFile)) {
-            dfs.forEach(this::addWordToDictionary);
-        } catch (IOException e) {
-            System.err.println("Error reading dictionary file!");
+        return words;
+    }
+
+    private CompiledDictionaryFile openCompiledDictionary(Path dictFile) {
+        CompiledDictionaryFile compiled = null;
+
+        try {
+            compiled = CompiledDictionaryFile.open(dictFile, minWordLength, maxWordLength, excludeWordsSet);
+        } catch (IOException | IllegalArgumentException e) {
+            System.err.println("Error reading compiled dictionary file!");
             System.exit(-1);
         }
+
+        return compiled;
     }
 
-    private void addWordToDictionary(String word) {
-        String sortedWord = Word.sortLetters(word);
+    // XXX: a word can only be indexed if all of its symbols get a slot of their own in a LetterCount
+    private static LetterGroupIndex indexDictionary(List<String> words) {
+        LetterGroupIndex letterGroups = null;
 
-        if (validateWordLength(sortedWord) && !dictionary.containsKey(sortedWord) && !excludeWordsSet.contains(word))
-            dictionary.put(sortedWord, new ArrayList<>());
+        try {
+            letterGroups = new LetterGroupIndex(words);
+        } catch (IllegalArgumentException e) {
+            System.err.println("Error indexing dictionary file, it has too many different symbols!");
+            System.exit(-1);
+        }
 
-        if (validateWordLength(sortedWord) && !excludeWordsSet.contains(word))
-            dictionary.get(sortedWord).add(word);
+        return letterGroups;
     }
 
-    private boolean validateWordLength(String sortedWord) {
-        int wordLen = sortedWord.length();
+    /**
+     * {@code readDictionary()} - Reads the words of a text dictionary file. The lines are read and sorted in parallel,
+     * in chunks of the file split up by the stream, and the words of the right length are gathered into one list.
+     * Only then are the excluded words, which are read meanwhile, taken out.
+     * @param dictFile the dictionary file
+     * @param excludeWordsFromFile the words of the exclude words file
+     * @return the words of the {@code Dictionary}
+     */
+    private List<String> readDictionary(Path dictFile, CompletableFuture<Set<String>> excludeWordsFromFile) {
+        List<String> words = new ArrayList<>();
+
+        // XXX: Files.lines() splits a UTF-8 file across the threads of the stream without reading it all up front
+        try (Stream<String> dfs = Files.lines(dictFile).parallel()) {
+            words = dfs.filter(word -> validateWordLength(Word.keyLength(word)))
+                       .collect(Collectors.toCollection(ArrayList::new));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error reading dictionary file!");
+            System.exit(-1);
+        }
 
+        excludeWordsSet.addAll(excludeWordsFromFile.join());
+
+        if (!excludeWordsSet.isEmpty())
+            words.removeIf(excludeWordsSet::contains);
+
+        return words;
+    }
+
+    private boolean validateWordLength(int wordLen) {
         return wordLen >= minWordLength && wordLen <= maxWordLength;
     }
 
+    // XXX: despite the name this takes a key, i.e. the sorted letters of a word, like getListOrEmpty()
     public boolean containsWord(String word) {
         Objects.requireNonNull(word, "Word cannot be null");
 
+        int group = findLetterGroupOfKey(word);
+
+        if (group != NOT_LETTERS_ONLY)
+            return group >= 0;
+
         return dictionary.containsKey(word);
     }
 
+    /**
+     * {@code getKeyTrie()} - Gets a {@code KeyTrie} of the keys in this {@code Dictionary}. The trie of a text
+     * dictionary is built the first time it is requested, by one thread only if several request it at once.
+     * @return the {@code KeyTrie} of this {@code Dictionary}
+     */
+    public KeyTrie getKeyTrie() {
+        KeyTrie trie = keyTrie;
+
+        if (trie == null) {
+            synchronized (this) {
+                trie = keyTrie;
+
+                if (trie == null)
+                    keyTrie = trie = new KeyTrie(letterGroups);
+            }
+        }
+
+        return trie;
+    }
+
+    /**
+     * {@code getWordId()} - Gets the id of a word, its position in the alphabetically sorted list of every word in
+     * this {@code Dictionary}. The ids stay the same as long as the dictionary file and the word filters do.
+     * @param word the word
+     * @return the id of the word, or -1 if it isn't in this {@code Dictionary}
+     */
+    public int getWordId(String word) {
+        Objects.requireNonNull(word, "Word cannot be null");
+
+        return getLetterGroups().getWordId(word);
+    }
+
+    public String getWord(int id) {
+        LetterGroupIndex groups = getLetterGroups();
+
+        if (id < 0 || id >= groups.getWordCount())
+            throw new IllegalArgumentException("Invalid word id: " + id);
+
+        return groups.getWord(id);
+    }
+
+    public int getWordCount() { return getLetterGroups().getWordCount(); }
+
+    /**
+     * {@code findLetterGroup()} - Finds the group of words made of exactly the letters given, whatever else their
+     * keys hold. The lookup is a probe of a table of {@code long} signatures, see {@code LetterGroupIndex}.
+     * @param letters the letters
+     * @return the group, or -1 if no word is made of those letters
+     */
+    public int findLetterGroup(LetterCount letters) {
+        Objects.requireNonNull(letters, "Letters cannot be null");
+
+        return getLetterGroups().findGroup(letters);
+    }
+
+    public int findLetterGroup(CharSequence word) {
+        Objects.requireNonNull(word, "Word cannot be null");
+
+        return getLetterGroups().findGroup(word);
+    }
+
+    public List<String> getWordsInLetterGroup(int group) {
+        LetterGroupIndex groups = getLetterGroups();
+
+        if (group < 0 || group >= groups.getGroupCount())
+            throw new IllegalArgumentException("Invalid letter group: " + group);
+
+        return new GroupWordList(groups, group);
+    }
+
+    // the words of a key made only of letters are all the words of its letter group, unless some of those have
+    // something else in their keys as well
+    private int findLetterGroupOfKey(String key) {
+        if (!LetterGroupIndex.isSortedLetters(key)) return NOT_LETTERS_ONLY;
+
+        LetterGroupIndex groups = getLetterGroups();
+        int group = groups.findGroup(key);
+
+        return (group < 0 || groups.isLettersOnly(group)) ? group : NOT_LETTERS_ONLY;
+    }
+
+    // used by DictionaryCompiler to write out the letter groups
+    LetterGroupIndex getLetterGroups() { return letterGroups; }
+
     public List<String> getListOf(String word) {
         Objects.requireNonNull(word, "Word cannot be null");
 
         return List.copyOf(dictionary.get(word));
     }
 
+    /**
+     * {@code getListOrEmpty()} - Gets the words with the key. A key made only of letters is looked up by its
+     * signature and its words are returned without being copied.
+     * @param word the key, i.e. the sorted letters of a word
+     * @return an unmodifiable {@code List} of the words, empty if there are none
+     */
     public List<String> getListOrEmpty(String word) {
         Objects.requireNonNull(word, "Word cannot be null");
 
-        if (dictionary.containsKey(word))
-            return List.copyOf(dictionary.get(word));
+        int group = findLetterGroupOfKey(word);
+
+        if (group != NOT_LETTERS_ONLY)
+            return (group >= 0) ? new GroupWordList(getLetterGroups(), group) : Collections.emptyList();
+
+        List<String> words = dictionary.get(word);
+
+        if (words != null)
+            return List.copyOf(words);
         else
             return Collections.emptyList();
     }
@@ -5,18 +5,21 @@ import org.kotopka.parser.Switch;
 
 /**
  * {@code DictionaryFactory} - Creates a {@code Dictionary} object with options passed to the commandline {@code Parser} object.
+ * A {@code Dictionary} already built with the same options is reused, see {@code DictionaryRegistry}.
  */
 public final class DictionaryFactory {
 
     private DictionaryFactory() {} // enforce non-instantiability
 
+    private static final String DEFAULT_DICTIONARY_FILE = "dictionary-large.txt";
+
     public static Dictionary getDictionary(Parser parser) {
-        return new Dictionary.Builder("dictionary-large.txt")
-            .setDictionaryFile(parser.getOption(Switch.DICT_FILE).getString())
-            .setMaxWordLength(parser.getOption(Switch.MAX_WORD_LENGTH).getInt())
-            .setMinWordLength(parser.getOption(Switch.MIN_WORD_LENGTH).getInt())
-            .excludeWordsFromFile(parser.getOption(Switch.EXCLUDE_FROM_DICT_FILE).getString())
-            .build();
+        String dictFile = parser.getOption(Switch.DICT_FILE).getString();
+        int minWordLength = parser.getOption(Switch.MIN_WORD_LENGTH).getInt();
+        int maxWordLength = parser.getOption(Switch.MAX_WORD_LENGTH).getInt();
+
+        return DictionaryRegistry.getDictionary(dictFile.isBlank() ? DEFAULT_DICTIONARY_FILE : dictFile,
+                minWordLength, maxWordLength, parser.getOption(Switch.EXCLUDE_FROM_DICT_FILE).getString());
     }
 
 }
@@ -0,0 +1,16 @@
+package org.kotopka.dictionary;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@code DictionaryIndex} - Interface for the key-value storage behind a {@code Dictionary}. Keys are the letters of
+ * a word in alphabetically-sorted form and each value is the list of words with that key.
+ */
+interface DictionaryIndex {
+
+    boolean containsKey(String key);
+    List<String> get(String key); // null if the key isn't present
+    Collection<String> keys(); // may build every key anew, so not for use while searching
+
+}
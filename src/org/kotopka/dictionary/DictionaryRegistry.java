@@ -0,0 +1,156 @@
+package org.kotopka.dictionary;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * {@code DictionaryRegistry} - A process-wide registry of the {@code Dictionary} objects built so far, so asking for
+ * the same dictionary file with the same word filters again gets back the {@code Dictionary} already built, along
+ * with the key trie and word ids it has worked out since, instead of reading the file again.
+ *
+ * <p>A {@code Dictionary} is only reused while neither the dictionary file nor the exclude words file has been
+ * modified since it was built; otherwise it's replaced by a new one. Only the latest {@code Dictionary} of each
+ * file and set of filters is kept, and only for the {@code MAX_ENTRIES} of them asked for most recently, so that
+ * trying out one set of filters after another, as the GUI does, doesn't keep every {@code Dictionary} built along
+ * the way in memory. Several threads asking for a dictionary that isn't built yet wait for a single one of them to
+ * build it.</p>
+ */
+public final class DictionaryRegistry {
+
+    private static final class Key {
+        private final String dictFile;
+        private final int minWordLength;
+        private final int maxWordLength;
+        private final String excludeWordsFile;
+
+        private Key(String dictFile, int minWordLength, int maxWordLength, String excludeWordsFile) {
+            this.dictFile = dictFile;
+            this.minWordLength = minWordLength;
+            this.maxWordLength = maxWordLength;
+            this.excludeWordsFile = excludeWordsFile;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key other = (Key) o;
+
+            return minWordLength == other.minWordLength && maxWordLength == other.maxWordLength &&
+                    dictFile.equals(other.dictFile) && excludeWordsFile.equals(other.excludeWordsFile);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(dictFile, minWordLength, maxWordLength, excludeWordsFile);
+        }
+    }
+
+    private static final class Entry {
+        private final long dictFileModified;
+        private final long excludeWordsFileModified;
+        private final FutureTask<Dictionary> dictionary;
+
+        private Entry(long dictFileModified, long excludeWordsFileModified, FutureTask<Dictionary> dictionary) {
+            this.dictFileModified = dictFileModified;
+            this.excludeWordsFileModified = excludeWordsFileModified;
+            this.dictionary = dictionary;
+        }
+
+        private boolean isUpToDate(long dictFileModified, long excludeWordsFileModified) {
+            return this.dictFileModified == dictFileModified &&
+                    this.excludeWordsFileModified == excludeWordsFileModified;
+        }
+    }
+
+    public static final int MAX_ENTRIES = 4;
+
+    // XXX: in access order, with the least recently used entry evicted as another one goes in, see SubWordCache
+    private static final Map<Key, Entry> registry = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+
+    private DictionaryRegistry() {} // enforce non-instantiability
+
+    /**
+     * {@code getDictionary()} - Gets the {@code Dictionary} of the file with the word filters, building it only if
+     * it hasn't been built yet or one of its files has been modified since
+     * @param dictFile the dictionary file
+     * @param minWordLength the min word length
+     * @param maxWordLength the max word length
+     * @param excludeWordsFile the exclude words file, or a blank string for none
+     * @return the {@code Dictionary}
+     */
+    public static Dictionary getDictionary(String dictFile, int minWordLength, int maxWordLength,
+                                           String excludeWordsFile) {
+        Objects.requireNonNull(dictFile, "Dictionary file cannot be null");
+        Objects.requireNonNull(excludeWordsFile, "Exclude words file cannot be null");
+
+        Key key = new Key(normalize(dictFile), minWordLength, maxWordLength, normalize(excludeWordsFile));
+        long dictFileModified = lastModified(dictFile);
+        long excludeWordsFileModified = lastModified(excludeWordsFile);
+
+        Entry entry;
+
+        // XXX: only puts the task in place, the dictionary is built outside of the lock by the first thread to run it
+        synchronized (registry) {
+            entry = registry.compute(key, (k, existing) ->
+                    (existing != null && existing.isUpToDate(dictFileModified, excludeWordsFileModified)) ?
+                            existing :
+                            new Entry(dictFileModified, excludeWordsFileModified, new FutureTask<>(() ->
+                                    new Dictionary.Builder(dictFile)
+                                            .setMinWordLength(minWordLength)
+                                            .setMaxWordLength(maxWordLength)
+                                            .excludeWordsFromFile(excludeWordsFile)
+                                            .build())));
+        }
+
+        entry.dictionary.run(); // does nothing if the dictionary has been built or is being built
+
+        try {
+            return entry.dictionary.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the dictionary", e);
+        } catch (ExecutionException e) {
+            synchronized (registry) {
+                registry.remove(key, entry); // so the next request tries again
+            }
+
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    public static void clear() {
+        synchronized (registry) {
+            registry.clear();
+        }
+    }
+
+    public static int size() {
+        synchronized (registry) {
+            return registry.size();
+        }
+    }
+
+    private static String normalize(String filename) {
+        return filename.isBlank() ? "" : new File(filename).getAbsoluteFile().toPath().normalize().toString();
+    }
+
+    // 0 for a blank or missing file
+    private static long lastModified(String filename) {
+        return filename.isBlank() ? 0 : new File(filename).lastModified();
+    }
+
+}
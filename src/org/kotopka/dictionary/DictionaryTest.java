@@ -0,0 +1,111 @@
+package org.kotopka.dictionary;
+
+import org.kotopka.anagram.Anagram;
+import org.kotopka.word.LetterCount;
+import org.kotopka.word.Word;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+public class DictionaryTest {
+
+    private static final List<String> SYMBOL_WORDS = List.of("A-B", "AB", "C", "C.", "E&", "B", "A", "D-", "F.G");
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        // a compiled dictionary with symbols is checked in a new JVM, where they haven't got a slot yet
+        if (args.length == 2) {
+            LetterCount.claimSymbols(args[0]);
+            checkSymbolWords(new Dictionary.Builder(args[1]).build());
+            return;
+        }
+
+        Path dictFile = Files.createTempFile("dictionary", ".txt");
+        Path compiledFile = Files.createTempFile("dictionary", ".bin");
+        Path excludeFile = Files.createTempFile("exclude", ".txt");
+
+        try {
+            Files.write(dictFile, List.of("listen", "silent", "tinsel", "dormitories", "dirty", "room", "or's"));
+            Files.write(excludeFile, List.of("dormitories"));
+
+            DictionaryCompiler.compile(new Dictionary.Builder(dictFile.toString()).build(), compiledFile.toString());
+
+            // every word of the key "deiimoorrst" is excluded, the key goes with them
+            Dictionary compiled = new Dictionary.Builder(compiledFile.toString())
+                    .excludeWordsFromFile(excludeFile.toString())
+                    .build();
+            Dictionary text = new Dictionary.Builder(dictFile.toString())
+                    .excludeWordsFromFile(excludeFile.toString())
+                    .build();
+
+            for (Dictionary dictionary : List.of(compiled, text)) {
+                check(dictionary.getKeyTrie().size() == 4, "key trie size " + dictionary.getKeyTrie().size());
+                check(!dictionary.containsWord("deiimoorrst"), "excluded key found");
+                check(dictionary.getListOrEmpty("deiimoorrst").isEmpty(), "excluded word found");
+                check(dictionary.getListOrEmpty("eilnst").equals(List.of("listen", "silent", "tinsel")),
+                        "words of eilnst " + dictionary.getListOrEmpty("eilnst"));
+                check(dictionary.getWordId("dormitories") < 0, "excluded word has an id");
+            }
+
+            // the symbols get their slots here in another order than when the words are first read
+            LetterCount.claimSymbols("&.-");
+            Files.write(dictFile, SYMBOL_WORDS);
+            DictionaryCompiler.compile(new Dictionary.Builder(dictFile.toString()).build(), compiledFile.toString());
+
+            checkSymbolWords(new Dictionary.Builder(compiledFile.toString()).build());
+            checkInNewJvm("", compiledFile);
+            checkInNewJvm("-.&", compiledFile); // the symbols of the file can't get the slots they had
+
+            // the symbols of a phrase take no slots, however many there are, and match nothing
+            String symbols = LetterCount.getSymbols();
+            Anagram anagram = new Anagram(new Dictionary.Builder(dictFile.toString()).build());
+
+            for (char c = '\u03b1'; c < '\u03b1' + 40; c++)
+                check(anagram.findMultipleWordAnagramsOf("ab" + c).isEmpty(), "anagrams with symbol " + c);
+
+            check(LetterCount.getSymbols().equals(symbols), "symbols " + LetterCount.getSymbols());
+            check(anagram.findMultipleWordAnagramsOf("ab").contains("AB"), "anagrams of ab");
+
+            System.out.println("DictionaryTest passed");
+        } finally {
+            Files.deleteIfExists(dictFile);
+            Files.deleteIfExists(compiledFile);
+            Files.deleteIfExists(excludeFile);
+        }
+    }
+
+    private static void checkInNewJvm(String symbolsSeenFirst, Path compiledFile)
+            throws IOException, InterruptedException {
+        Path java = Path.of(System.getProperty("java.home"), "bin", "java");
+        Process process = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                DictionaryTest.class.getName(), symbolsSeenFirst, compiledFile.toString())
+                .inheritIO()
+                .start();
+
+        check(process.waitFor() == 0, "compiled dictionary with symbols \"" + symbolsSeenFirst + "\" seen first");
+    }
+
+    // each word is found by its key, and in the trie by its letters, in a group of only the words with its letters
+    private static void checkSymbolWords(Dictionary dictionary) {
+        check(dictionary.getKeyTrie().size() == SYMBOL_WORDS.size(), "key trie size " + dictionary.getKeyTrie().size());
+
+        for (String word : SYMBOL_WORDS) {
+            List<String> words = new ArrayList<>();
+
+            dictionary.getKeyTrie().forEachLetterGroupWithin(LetterCount.of(word), group -> {
+                if (dictionary.getWordsInLetterGroup(group).contains(word))
+                    words.addAll(dictionary.getWordsInLetterGroup(group));
+            });
+
+            check(dictionary.getListOrEmpty(Word.sortLetters(word)).equals(List.of(word)), "words of " + word);
+            check(words.equals(List.of(word)), "letter group of " + word + " " + words);
+        }
+    }
+
+    private static void check(boolean condition, String message) {
+        if (!condition) throw new IllegalStateException("DictionaryTest failed: " + message);
+    }
+
+}
@@ -0,0 +1,228 @@
+package org.kotopka.dictionary;
+
+import org.kotopka.word.LetterCount;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+/**
+ * {@code KeyTrie} - A trie over the sorted-letter keys of a {@code Dictionary}. Since the letters of every key are in
+ * alphabetical order, a walk of the trie against a {@code LetterCount} only follows the branches whose letters are
+ * still available, so the cost of finding all the keys that fit inside a phrase tracks the number of keys that
+ * actually fit rather than the {@code 2^n} subsequences of the phrase.
+ *
+ * <p>Keys are inserted by the slots of their {@code LetterCount}, the letters first and then any symbols, so a key
+ * such as {@code 'aaadkrrs} (from "aardvark's") goes on below {@code aaadkrrs} and is only reached when there's an
+ * apostrophe left. All the keys ending on a node are those of one letter group of the {@code Dictionary}, and the
+ * node only holds the id of the group.</p>
+ *
+ * <p>The nodes are numbered in the order they're inserted in, the root being 0, and held in a few buffers rather than
+ * as objects: the letter leading to each node, its group, its first child and its next sibling, which is all a
+ * compiled dictionary file needs to hold to give the trie back, see {@code CompiledDictionaryFile}. The children and
+ * siblings of a node always come after it, which a walk checks as it goes, so that not even a corrupt file can send
+ * it round in circles.</p>
+ */
+public final class KeyTrie {
+
+    private final LetterGroupIndex groups;
+    private final ByteBuffer nodeLetters;
+    private final IntBuffer nodeGroups;
+    private final IntBuffer firstChild;
+    private final IntBuffer nextSibling;
+    private final int size;
+
+    KeyTrie(LetterGroupIndex groups) {
+        SortedMap<byte[], Integer> groupsByPath = new TreeMap<>(Arrays::compare);
+
+        for (int group = 0; group < groups.getGroupCount(); group++)
+            if (!groups.isEmpty(group))
+                groupsByPath.put(pathOf(LetterCount.of(groups.getLettersOf(group))), group);
+
+        groupsByPath.remove(new byte[0]); // nothing to walk for keys without any letters
+
+        int maxNodes = 1;
+        int maxDepth = 0;
+
+        for (byte[] path : groupsByPath.keySet()) {
+            maxNodes += path.length;
+            maxDepth = Math.max(maxDepth, path.length);
+        }
+
+        byte[] letters = new byte[maxNodes];
+        int[] nodeGroups = new int[maxNodes];
+        int[] firstChild = new int[maxNodes];
+        int[] nextSibling = new int[maxNodes];
+        int[] lastChild = new int[maxNodes];
+        int[] nodesOnPath = new int[maxDepth + 1];
+        byte[] previous = new byte[0];
+        int nodeCount = 1;
+
+        Arrays.fill(nodeGroups, -1);
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+
+        // the paths are in sorted order, so only the part of a path after what it shares with the one before it is
+        // new, and each of its nodes goes after the other children of its parent
+        for (Map.Entry<byte[], Integer> entry : groupsByPath.entrySet()) {
+            byte[] path = entry.getKey();
+            int shared = Arrays.mismatch(previous, path);
+
+            for (int depth = shared; depth < path.length; depth++) {
+                int parent = nodesOnPath[depth];
+                int node = nodeCount++;
+
+                letters[node] = path[depth];
+
+                if (firstChild[parent] < 0)
+                    firstChild[parent] = node;
+                else
+                    nextSibling[lastChild[parent]] = node;
+
+                lastChild[parent] = node;
+                nodesOnPath[depth + 1] = node;
+            }
+
+            nodeGroups[nodesOnPath[path.length]] = entry.getValue();
+            previous = path;
+        }
+
+        this.groups = groups;
+        this.nodeLetters = ByteBuffer.wrap(Arrays.copyOf(letters, nodeCount));
+        this.nodeGroups = IntBuffer.wrap(Arrays.copyOf(nodeGroups, nodeCount));
+        this.firstChild = IntBuffer.wrap(Arrays.copyOf(firstChild, nodeCount));
+        this.nextSibling = IntBuffer.wrap(Arrays.copyOf(nextSibling, nodeCount));
+        this.size = groupsByPath.size();
+    }
+
+    private KeyTrie(LetterGroupIndex groups, ByteBuffer nodeLetters, IntBuffer nodeGroups, IntBuffer firstChild,
+                    IntBuffer nextSibling, int size) {
+        this.groups = groups;
+        this.nodeLetters = nodeLetters;
+        this.nodeGroups = nodeGroups;
+        this.firstChild = firstChild;
+        this.nextSibling = nextSibling;
+        this.size = size;
+    }
+
+    static KeyTrie readFrom(ByteBuffer buffer, LetterGroupIndex groups) {
+        int size = buffer.getInt();
+        int nodeCount = buffer.getInt();
+        ByteBuffer nodeLetters = CompiledDictionaryFile.readBytes(buffer, nodeCount);
+        IntBuffer nodeGroups = CompiledDictionaryFile.readInts(buffer, nodeCount);
+        IntBuffer firstChild = CompiledDictionaryFile.readInts(buffer, nodeCount);
+        IntBuffer nextSibling = CompiledDictionaryFile.readInts(buffer, nodeCount);
+
+        return new KeyTrie(groups, nodeLetters, nodeGroups, firstChild, nextSibling, size);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        int nodeCount = nodeLetters.limit();
+
+        out.writeInt(size);
+        out.writeInt(nodeCount);
+
+        for (int node = 0; node < nodeCount; node++) out.writeByte(nodeLetters.get(node));
+        for (int node = 0; node < nodeCount; node++) out.writeInt(nodeGroups.get(node));
+        for (int node = 0; node < nodeCount; node++) out.writeInt(firstChild.get(node));
+        for (int node = 0; node < nodeCount; node++) out.writeInt(nextSibling.get(node));
+    }
+
+    /**
+     * {@code retain()} - Gets the trie of an index of only some of the words of the one this trie was built from,
+     * see {@code LetterGroupIndex.retain()}. The nodes are shared and only those of the groups that are now empty
+     * are cleared.
+     * @param retained the index of the words that are kept
+     * @return the trie of {@code retained}
+     */
+    KeyTrie retain(LetterGroupIndex retained) {
+        int[] retainedGroups = new int[nodeGroups.limit()];
+        int retainedSize = 0;
+
+        nodeGroups.get(0, retainedGroups);
+
+        for (int node = 0; node < retainedGroups.length; node++) {
+            if (retainedGroups[node] >= 0 && retained.isEmpty(retainedGroups[node]))
+                retainedGroups[node] = -1;
+
+            if (retainedGroups[node] >= 0) retainedSize++;
+        }
+
+        return new KeyTrie(retained, nodeLetters, IntBuffer.wrap(retainedGroups), firstChild, nextSibling,
+                retainedSize);
+    }
+
+    // the slots of the letters in the order they're walked in, which isn't always the order of their characters
+    private static byte[] pathOf(LetterCount letters) {
+        byte[] path = new byte[letters.size()];
+        int pos = 0;
+
+        for (int letter = 0; letter < LetterCount.ALPHABET_SIZE; letter++)
+            for (int i = 0; i < letters.getCount(letter); i++)
+                path[pos++] = (byte) letter;
+
+        return path;
+    }
+
+    /**
+     * {@code size()} - Gets the number of letter groups in the trie
+     * @return the number of letter groups
+     */
+    public int size() { return size; }
+
+    /**
+     * {@code forEachLetterGroupWithin()} - Visits every letter group whose letters are contained in {@code letters},
+     * in the alphabetical order of their letters, see {@code Dictionary.getWordsInLetterGroup()}
+     * @param letters the available letters
+     * @param action the action to perform on each letter group found
+     */
+    public void forEachLetterGroupWithin(LetterCount letters, IntConsumer action) {
+        Objects.requireNonNull(letters, "Letters cannot be null");
+        Objects.requireNonNull(action, "Action cannot be null");
+
+        walk(0, letters.copy(), action);
+    }
+
+    /**
+     * {@code forEachKeyWithin()} - Visits every key whose letters are contained in {@code letters}, in the
+     * alphabetical order of their letters
+     * @param letters the available letters
+     * @param action the action to perform on each key found
+     */
+    public void forEachKeyWithin(LetterCount letters, Consumer<String> action) {
+        Objects.requireNonNull(action, "Action cannot be null");
+
+        forEachLetterGroupWithin(letters, group -> groups.getKeysOf(group).forEach(action));
+    }
+
+    public List<String> findKeysWithin(LetterCount letters) {
+        List<String> keys = new ArrayList<>();
+
+        forEachKeyWithin(letters, keys::add);
+
+        return keys;
+    }
+
+    private void walk(int node, LetterCount remaining, IntConsumer action) {
+        if (nodeGroups.get(node) >= 0)
+            action.accept(nodeGroups.get(node));
+
+        // a child or sibling that doesn't come after the node before it ends the walk as -1 does
+        for (int child = firstChild.get(node), previous = node; child > previous;
+             previous = child, child = nextSibling.get(child)) {
+            int letter = nodeLetters.get(child);
+
+            if (remaining.getCount(letter) == 0)
+                continue;
+
+            remaining.decrement(letter);
+            walk(child, remaining, action);
+            remaining.increment(letter);
+        }
+    }
+
+}
@@ -0,0 +1,457 @@
+package org.kotopka.dictionary;
+
+import org.kotopka.word.LetterCount;
+import org.kotopka.word.Word;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.*;
+import java.util.function.IntPredicate;
+import java.util.stream.IntStream;
+
+/**
+ * {@code LetterGroupIndex} - The words of a {@code Dictionary} packed into a {@code WordPool}, which gives them their
+ * ids, along with the groups of words made of the same letters. A group is found by the signature of its letters, the
+ * product of a prime for each letter, in an open-addressing table of {@code long} keys, and holds a range of word
+ * ids. Looking up the letters of a word or key is then a probe of a primitive table, without building a key
+ * {@code String} or hashing one. The letters are those counted by {@code LetterCount}, symbols such as apostrophes
+ * included.
+ *
+ * <p>The most common letters get the smallest primes, so the signature of most words fits in a {@code long}. The
+ * few words too long for that are grouped by their sorted letters instead, which are held in a {@code WordPool} of
+ * their own and found by a binary search of it.</p>
+ *
+ * <p>The words of a group have the same key unless {@code LetterCount} and {@code Word.sortLetters()} don't quite
+ * agree on them, e.g. on how to lower-case some character. Each group knows whether all of its words are made only of
+ * the letters {@code a-z}, which rules that out, so that their key can be looked up by its signature alone.</p>
+ *
+ * <p>As a {@code DictionaryIndex} the words of a key are those of its letter group with that key, found again from the
+ * words themselves. All of its tables are buffers of primitives, which a compiled dictionary file holds as they are
+ * and which are then views of the mapped file, see {@code CompiledDictionaryFile}. Words left out by the options of a
+ * {@code Dictionary} loading such a file can leave some of the groups empty, which are then never found.</p>
+ */
+final class LetterGroupIndex implements DictionaryIndex {
+
+    static final long NO_SIGNATURE = -1;
+
+    private static final String LETTERS_BY_FREQUENCY = "etaoinshrdlcumwfgypbvkjxqz";
+    private static final long[] PRIMES = new long[LetterCount.ALPHABET_SIZE];
+
+    static {
+        long prime = 2;
+
+        // the symbols, in the slots after the letters, are rarer than any letter
+        for (int i = 0; i < LetterCount.ALPHABET_SIZE; i++) {
+            while (!isPrime(prime))
+                prime++;
+
+            int slot = (i < LETTERS_BY_FREQUENCY.length()) ? LetterCount.indexOf(LETTERS_BY_FREQUENCY.charAt(i)) : i;
+
+            PRIMES[slot] = prime++;
+        }
+    }
+
+    private final WordPool words;
+    private final IntBuffer groupStarts;
+    private final IntBuffer groupWordIds;
+    private final ByteBuffer lettersOnly; // 1 if a group is made only of the letters a-z
+
+    // signature 0 marks an empty slot, as a product of primes is never 0
+    private final LongBuffer tableSignatures;
+    private final IntBuffer tableGroups;
+    private final int tableMask;
+    private final WordPool overflowLetters;
+    private final IntBuffer overflowGroups; // the group of the letters with each id in overflowLetters
+
+    /**
+     * {@code LetterGroupIndex()} - Builds the index of a list of words. The words are encoded and sorted, and their
+     * signatures worked out, in parallel, while the groups are handed out one word at a time in the order of the
+     * ids, which keeps the ids of the groups the same however many threads there are.
+     * @param list the words
+     */
+    LetterGroupIndex(Collection<String> list) {
+        this(new WordPool(list));
+    }
+
+    private LetterGroupIndex(WordPool words) {
+        this.words = words;
+
+        int wordCount = words.size();
+        int capacity = Integer.highestOneBit(Math.max(wordCount, 8) * 2 - 1) << 1;
+
+        long[] tableSignatures = new long[capacity];
+        int[] tableGroups = new int[capacity];
+
+        this.tableSignatures = LongBuffer.wrap(tableSignatures);
+        this.tableGroups = IntBuffer.wrap(tableGroups);
+        this.tableMask = capacity - 1;
+
+        long[] signatureOfWord = new long[wordCount];
+        boolean[] wordIsLettersOnly = new boolean[wordCount];
+
+        IntStream.range(0, wordCount).parallel().forEach(id -> {
+            String word = words.get(id);
+
+            LetterCount.claimSymbols(word);
+            signatureOfWord[id] = signatureOf(word);
+            wordIsLettersOnly[id] = isLettersOnly(word);
+        });
+
+        int[] groupOfWord = new int[wordCount];
+        int groupCount = 0;
+        Map<String, Integer> overflow = new HashMap<>();
+
+        for (int id = 0; id < wordCount; id++) {
+            long signature = signatureOfWord[id];
+            int group;
+
+            if (signature == NO_SIGNATURE) {
+                String letters = LetterCount.of(words.get(id)).toSortedString();
+                Integer existing = overflow.get(letters);
+
+                if (existing == null) {
+                    existing = groupCount++;
+                    overflow.put(letters, existing);
+                }
+
+                group = existing;
+            } else {
+                int slot = slotOf(signature);
+
+                if (tableSignatures[slot] == 0) {
+                    tableSignatures[slot] = signature;
+                    tableGroups[slot] = groupCount++;
+                }
+
+                group = tableGroups[slot];
+            }
+
+            groupOfWord[id] = group;
+        }
+
+        // a counting sort of the ids by group, which keeps each group in alphabetical order
+        int[] groupStarts = new int[groupCount + 1];
+        int[] groupWordIds = new int[wordCount];
+        byte[] lettersOnly = new byte[groupCount];
+
+        Arrays.fill(lettersOnly, (byte) 1);
+
+        for (int group : groupOfWord)
+            groupStarts[group + 1]++;
+
+        for (int g = 0; g < groupCount; g++)
+            groupStarts[g + 1] += groupStarts[g];
+
+        int[] next = Arrays.copyOf(groupStarts, groupCount);
+
+        for (int id = 0; id < wordCount; id++) {
+            int group = groupOfWord[id];
+
+            groupWordIds[next[group]++] = id;
+
+            if (!wordIsLettersOnly[id]) lettersOnly[group] = 0;
+        }
+
+        this.groupStarts = IntBuffer.wrap(groupStarts);
+        this.groupWordIds = IntBuffer.wrap(groupWordIds);
+        this.lettersOnly = ByteBuffer.wrap(lettersOnly);
+        this.overflowLetters = new WordPool(overflow.keySet());
+
+        int[] overflowGroups = new int[overflowLetters.size()];
+
+        overflow.forEach((letters, group) -> overflowGroups[overflowLetters.findId(letters)] = group);
+
+        this.overflowGroups = IntBuffer.wrap(overflowGroups);
+    }
+
+    private LetterGroupIndex(WordPool words, IntBuffer groupStarts, IntBuffer groupWordIds, ByteBuffer lettersOnly,
+                             LongBuffer tableSignatures, IntBuffer tableGroups, WordPool overflowLetters,
+                             IntBuffer overflowGroups) {
+        this.words = words;
+        this.groupStarts = groupStarts;
+        this.groupWordIds = groupWordIds;
+        this.lettersOnly = lettersOnly;
+        this.tableSignatures = tableSignatures;
+        this.tableGroups = tableGroups;
+        this.tableMask = tableSignatures.limit() - 1;
+        this.overflowLetters = overflowLetters;
+        this.overflowGroups = overflowGroups;
+    }
+
+    static LetterGroupIndex readFrom(ByteBuffer buffer) {
+        WordPool words = WordPool.readFrom(buffer);
+        int groupCount = buffer.getInt();
+        IntBuffer groupStarts = CompiledDictionaryFile.readInts(buffer, groupCount + 1);
+        IntBuffer groupWordIds = CompiledDictionaryFile.readInts(buffer, words.size());
+        ByteBuffer lettersOnly = CompiledDictionaryFile.readBytes(buffer, groupCount);
+        int capacity = buffer.getInt();
+
+        if (Integer.bitCount(capacity) != 1)
+            throw new IllegalArgumentException("Invalid letter group table capacity: " + capacity);
+
+        LongBuffer tableSignatures = CompiledDictionaryFile.readLongs(buffer, capacity);
+        IntBuffer tableGroups = CompiledDictionaryFile.readInts(buffer, capacity);
+        WordPool overflowLetters = WordPool.readFrom(buffer);
+        IntBuffer overflowGroups = CompiledDictionaryFile.readInts(buffer, overflowLetters.size());
+
+        return new LetterGroupIndex(words, groupStarts, groupWordIds, lettersOnly, tableSignatures, tableGroups,
+                overflowLetters, overflowGroups);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        words.writeTo(out);
+        out.writeInt(getGroupCount());
+
+        for (int i = 0; i < groupStarts.limit(); i++) out.writeInt(groupStarts.get(i));
+        for (int i = 0; i < groupWordIds.limit(); i++) out.writeInt(groupWordIds.get(i));
+        for (int i = 0; i < lettersOnly.limit(); i++) out.writeByte(lettersOnly.get(i));
+
+        out.writeInt(tableSignatures.limit());
+
+        for (int i = 0; i < tableSignatures.limit(); i++) out.writeLong(tableSignatures.get(i));
+        for (int i = 0; i < tableGroups.limit(); i++) out.writeInt(tableGroups.get(i));
+
+        overflowLetters.writeTo(out);
+
+        for (int i = 0; i < overflowGroups.limit(); i++) out.writeInt(overflowGroups.get(i));
+    }
+
+    /**
+     * {@code reindex()} - Gets an index of the same words built by the current slots of {@code LetterCount}, for when
+     * these tables were built by other ones. The words and groups keep their ids, which only go by the words.
+     * @return the new index
+     */
+    LetterGroupIndex reindex() {
+        return new LetterGroupIndex(words);
+    }
+
+    /**
+     * {@code retain()} - Gets an index of only some of the words of this one. The words get new ids, as if the others
+     * had never been there, while the groups keep theirs, so the signature table is shared and a group whose words
+     * are all left out is just empty.
+     * @param keep whether to keep the word with an id
+     * @return the new index, or this one if every word is kept
+     */
+    LetterGroupIndex retain(IntPredicate keep) {
+        int wordCount = words.size();
+        int[] newIds = new int[wordCount];
+        int count = 0;
+
+        for (int id = 0; id < wordCount; id++)
+            newIds[id] = keep.test(id) ? count++ : -1;
+
+        if (count == wordCount) return this;
+
+        int[] newGroupStarts = new int[groupStarts.limit()];
+        int[] newGroupWordIds = new int[count];
+        int position = 0;
+
+        for (int group = 0; group < getGroupCount(); group++) {
+            newGroupStarts[group] = position;
+
+            for (int p = groupStarts.get(group); p < groupStarts.get(group + 1); p++)
+                if (newIds[groupWordIds.get(p)] >= 0)
+                    newGroupWordIds[position++] = newIds[groupWordIds.get(p)];
+        }
+
+        newGroupStarts[getGroupCount()] = position;
+
+        return new LetterGroupIndex(words.retain(newIds, count), IntBuffer.wrap(newGroupStarts),
+                IntBuffer.wrap(newGroupWordIds), lettersOnly, tableSignatures, tableGroups, overflowLetters,
+                overflowGroups);
+    }
+
+    private static boolean isPrime(long n) {
+        for (long d = 2; d * d <= n; d++)
+            if (n % d == 0) return false;
+
+        return true;
+    }
+
+    /**
+     * {@code signatureOf()} - Gets the signature of the letters of a word or key, ignoring anything but letters
+     * @param word the word or key
+     * @return the signature, or {@code NO_SIGNATURE} if it doesn't fit in a {@code long}
+     */
+    static long signatureOf(CharSequence word) {
+        long signature = 1;
+
+        for (int i = 0; i < word.length(); i++) {
+            int letter = LetterCount.indexOf(Character.toLowerCase(word.charAt(i)));
+
+            if (letter < 0) continue;
+
+            long prime = PRIMES[letter];
+
+            if (signature > Long.MAX_VALUE / prime) return NO_SIGNATURE;
+
+            signature *= prime;
+        }
+
+        return signature;
+    }
+
+    static long signatureOf(LetterCount letters) {
+        long signature = 1;
+
+        for (int letter = 0; letter < LetterCount.ALPHABET_SIZE; letter++) {
+            long prime = PRIMES[letter];
+
+            for (int i = 0; i < letters.getCount(letter); i++) {
+                if (signature > Long.MAX_VALUE / prime) return NO_SIGNATURE;
+
+                signature *= prime;
+            }
+        }
+
+        return signature;
+    }
+
+    // whitespace is left out of keys and letter counts alike, so it doesn't matter here
+    static boolean isLettersOnly(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = Character.toLowerCase(word.charAt(i));
+
+            if ((c < 'a' || c > 'z') && c > ' ') return false;
+        }
+
+        return true;
+    }
+
+    // the form Word.sortLetters() gives a word made only of letters
+    static boolean isSortedLetters(CharSequence key) {
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+
+            if (c < 'a' || c > 'z' || (i > 0 && c < key.charAt(i - 1))) return false;
+        }
+
+        return true;
+    }
+
+    private int slotOf(long signature) {
+        int slot = Long.hashCode(signature * 0x9E3779B97F4A7C15L) & tableMask;
+
+        while (tableSignatures.get(slot) != signature && tableSignatures.get(slot) != 0)
+            slot = (slot + 1) & tableMask;
+
+        return slot;
+    }
+
+    private int findGroup(long signature) {
+        int slot = slotOf(signature);
+
+        return (tableSignatures.get(slot) == signature) ? nonEmpty(tableGroups.get(slot)) : -1;
+    }
+
+    private int findOverflowGroup(String letters) {
+        int id = overflowLetters.findId(letters);
+
+        return (id >= 0) ? overflowGroups.get(id) : -1;
+    }
+
+    private int nonEmpty(int group) {
+        return (group >= 0 && !isEmpty(group)) ? group : -1;
+    }
+
+    /**
+     * {@code findGroup()} - Finds the group of words with the letters of a word or key
+     * @param word the word or key
+     * @return the group, or -1 if no word has those letters
+     */
+    int findGroup(CharSequence word) {
+        long signature = signatureOf(word);
+
+        if (signature == NO_SIGNATURE)
+            return nonEmpty(findOverflowGroup(LetterCount.of(word.toString()).toSortedString()));
+
+        return findGroup(signature);
+    }
+
+    int findGroup(LetterCount letters) {
+        long signature = signatureOf(letters);
+
+        if (signature == NO_SIGNATURE)
+            return nonEmpty(findOverflowGroup(letters.toSortedString()));
+
+        return findGroup(signature);
+    }
+
+    int getGroupCount() { return lettersOnly.limit(); }
+
+    int getGroupStart(int group) { return groupStarts.get(group); }
+
+    int getGroupEnd(int group) { return groupStarts.get(group + 1); }
+
+    boolean isEmpty(int group) { return getGroupStart(group) == getGroupEnd(group); }
+
+    int getWordIdAt(int position) { return groupWordIds.get(position); }
+
+    boolean isLettersOnly(int group) { return lettersOnly.get(group) != 0; }
+
+    int getWordCount() { return words.size(); }
+
+    String getWord(int id) { return words.get(id); }
+
+    int getWordId(String word) { return words.findId(word); }
+
+    // the letters of a group are those of any of its words
+    String getLettersOf(int group) {
+        return LetterCount.of(getWord(getWordIdAt(getGroupStart(group)))).toSortedString();
+    }
+
+    // the dictionary keys of the words of a group, of which there's more than one if some of the words have
+    // something else besides letters in their keys
+    List<String> getKeysOf(int group) {
+        if (isLettersOnly(group))
+            return List.of(getLettersOf(group));
+
+        SortedSet<String> keys = new TreeSet<>();
+
+        for (int position = getGroupStart(group); position < getGroupEnd(group); position++)
+            keys.add(Word.sortLetters(getWord(getWordIdAt(position))));
+
+        return new ArrayList<>(keys);
+    }
+
+    @Override
+    public boolean containsKey(String key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public List<String> get(String key) {
+        int group = findGroup(key);
+
+        if (group < 0) return null;
+
+        // a key made of letters only could still have the letters of the group in the wrong order
+        boolean wholeGroup = isLettersOnly(group) && isSortedLetters(key);
+        List<String> list = new ArrayList<>();
+
+        for (int position = getGroupStart(group); position < getGroupEnd(group); position++) {
+            String word = getWord(getWordIdAt(position));
+
+            if (wholeGroup || Word.sortLetters(word).equals(key))
+                list.add(word);
+        }
+
+        return list.isEmpty() ? null : list;
+    }
+
+    // XXX: a slow path, every key of every group is built anew, only meant for writing the dictionary out
+    @Override
+    public Collection<String> keys() {
+        List<String> keys = new ArrayList<>();
+
+        for (int group = 0; group < getGroupCount(); group++)
+            if (!isEmpty(group))
+                keys.addAll(getKeysOf(group));
+
+        return keys;
+    }
+
+}
@@ -0,0 +1,145 @@
+package org.kotopka.dictionary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * {@code WordPool} - The words of a {@code Dictionary} packed one after the other into a single UTF-8 byte buffer, in
+ * the order of their bytes, with a table of where each word starts. A word is known by its id, its position in that
+ * order, and only turned back into a {@code String} when asked for, so a pool of any size is two buffers rather than
+ * an object or two per word. The buffers wrap arrays, or are views of a compiled dictionary file as it's mapped.
+ */
+final class WordPool {
+
+    private final ByteBuffer bytes;
+    private final IntBuffer offsets;
+
+    WordPool(Collection<String> words) {
+        byte[][] encoded = words.parallelStream()
+                .map(word -> word.getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+        int length = 0;
+
+        for (byte[] word : encoded)
+            length += word.length;
+
+        // the order of the bytes of UTF-8 is the order of the code points
+        Arrays.parallelSort(encoded, Arrays::compareUnsigned);
+
+        byte[] bytes = new byte[length];
+        int[] offsets = new int[encoded.length + 1];
+
+        for (int i = 0; i < encoded.length; i++) {
+            System.arraycopy(encoded[i], 0, bytes, offsets[i], encoded[i].length);
+            offsets[i + 1] = offsets[i] + encoded[i].length;
+        }
+
+        this.bytes = ByteBuffer.wrap(bytes);
+        this.offsets = IntBuffer.wrap(offsets);
+    }
+
+    private WordPool(ByteBuffer bytes, IntBuffer offsets) {
+        this.bytes = bytes;
+        this.offsets = offsets;
+    }
+
+    static WordPool readFrom(ByteBuffer buffer) {
+        int size = buffer.getInt();
+        int length = buffer.getInt();
+        IntBuffer offsets = CompiledDictionaryFile.readInts(buffer, size + 1);
+
+        return new WordPool(CompiledDictionaryFile.readBytes(buffer, length), offsets);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        byte[] data = new byte[bytes.limit()];
+
+        bytes.get(0, data);
+
+        out.writeInt(size());
+        out.writeInt(data.length);
+
+        for (int i = 0; i < offsets.limit(); i++) out.writeInt(offsets.get(i));
+
+        out.write(data);
+    }
+
+    /**
+     * {@code retain()} - Gets a pool of only some of the words of this one, still in the same order
+     * @param newIds the id of each word in the new pool, or -1 for a word that's left out
+     * @param count the number of words in the new pool
+     * @return the new pool
+     */
+    WordPool retain(int[] newIds, int count) {
+        int[] newOffsets = new int[count + 1];
+
+        for (int id = 0; id < size(); id++)
+            if (newIds[id] >= 0)
+                newOffsets[newIds[id] + 1] = offsets.get(id + 1) - offsets.get(id);
+
+        for (int i = 0; i < count; i++)
+            newOffsets[i + 1] += newOffsets[i];
+
+        byte[] newBytes = new byte[newOffsets[count]];
+
+        for (int id = 0; id < size(); id++)
+            if (newIds[id] >= 0)
+                bytes.get(offsets.get(id), newBytes, newOffsets[newIds[id]], offsets.get(id + 1) - offsets.get(id));
+
+        return new WordPool(ByteBuffer.wrap(newBytes), IntBuffer.wrap(newOffsets));
+    }
+
+    int size() { return offsets.limit() - 1; }
+
+    String get(int id) {
+        byte[] word = new byte[offsets.get(id + 1) - offsets.get(id)];
+
+        bytes.get(offsets.get(id), word);
+
+        return new String(word, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * {@code findId()} - Finds the id of a word by a binary search of the pool, comparing bytes without decoding
+     * @param word the word
+     * @return the id of the word, or -1 if it isn't in the pool
+     */
+    int findId(String word) {
+        byte[] target = word.getBytes(StandardCharsets.UTF_8);
+        int lo = 0;
+        int hi = size() - 1;
+
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int cmp = compareTo(mid, target);
+
+            if (cmp < 0)
+                lo = mid + 1;
+            else if (cmp > 0)
+                hi = mid - 1;
+            else
+                return mid;
+        }
+
+        return -1;
+    }
+
+    // compares the bytes of a word in the pool to those of another word as unsigned, as Arrays.compareUnsigned() does
+    private int compareTo(int id, byte[] target) {
+        int start = offsets.get(id);
+        int length = offsets.get(id + 1) - start;
+
+        for (int i = 0; i < Math.min(length, target.length); i++) {
+            int cmp = Byte.compareUnsigned(bytes.get(start + i), target[i]);
+
+            if (cmp != 0) return cmp;
+        }
+
+        return length - target.length;
+    }
+
+}
@@ -4,6 +4,8 @@ import org.kotopka.gui.model.AnagramGenerator;
 import org.kotopka.gui.view.MainFrame;
 import org.kotopka.gui.view.OptionsDialog;
 
+import java.util.function.Consumer;
+
 public class MainController {
 
     private final MainFrame mainFrame;
@@ -24,16 +26,16 @@ public class MainController {
         anagramGenerator = new AnagramGenerator(args, this);
     }
 
-    public void generateAnagrams(String inputString) {
-        anagramGenerator.generateAnagrams(inputString);
+    public void generateAnagrams(String inputString, Consumer<String> anagramConsumer) {
+        anagramGenerator.generateAnagrams(inputString, anagramConsumer);
     }
 
-    public void generateSubWords(String inputString) {
-        anagramGenerator.generateSubWords(inputString);
+    public void stopGeneratingAnagrams() {
+        anagramGenerator.stopGeneratingAnagrams();
     }
 
-    public void updateAnagrams(String anagrams) {
-        mainFrame.setAnagramTextArea(anagrams);
+    public void generateSubWords(String inputString) {
+        anagramGenerator.generateSubWords(inputString);
     }
 
     public void updateSubWords(String subWords) {
@@ -2,6 +2,8 @@ package org.kotopka.gui.model;
 
 import org.kotopka.anagram.Anagram;
 import org.kotopka.anagram.AnagramFactory;
+import org.kotopka.anagram.CancellationToken;
+import org.kotopka.anagram.SearchLimit;
 import org.kotopka.dictionary.Dictionary;
 import org.kotopka.dictionary.DictionaryFactory;
 import org.kotopka.gui.controller.MainController;
@@ -9,14 +11,19 @@ import org.kotopka.parser.Parser;
 import org.kotopka.parser.ParserFactory;
 
 import java.util.Collection;
-import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public class AnagramGenerator {
 
+    // XXX: a text area with more lines than this gets slow to append to and no one reads that far anyway
+    public static final int MAX_DISPLAYED_ANAGRAMS = 10_000;
+
     private final Anagram anagram;
     private final MainController mainController;
 
+    private volatile CancellationToken cancellationToken;
+    private volatile SearchLimit searchLimit;
     private int anagramCount;
     private int subWordCount;
     private double executionTimeInSeconds;
@@ -30,15 +37,34 @@ public class AnagramGenerator {
         this.anagram = AnagramFactory.getAnagram(parser, dictionary);
     }
 
-    public void generateAnagrams(String anagramString) {
+    /**
+     * {@code generateAnagrams()} - Generates the anagrams of a word or phrase, passing each one on as soon as it's
+     * found, in the order they're found in, see {@code Anagram.findMultipleWordAnagramsOf()}. Only the first
+     * {@code MAX_DISPLAYED_ANAGRAMS} of them are passed on, while the rest are just counted.
+     * @param anagramString the word or phrase
+     * @param anagramConsumer the consumer to pass each anagram to, called from the generating thread
+     */
+    public void generateAnagrams(String anagramString, Consumer<String> anagramConsumer) {
+        anagramCount = 0;
+        cancellationToken = new CancellationToken(); // a cancelled token stays cancelled, so one per generation
+        anagram.setCancellationToken(cancellationToken);
+        searchLimit = anagram.newSearchLimit();
+
         long start = System.currentTimeMillis();
-        List<String> anagrams = anagram.findMultipleWordAnagramsOf(anagramString);
+        anagram.findMultipleWordAnagramsOf(anagramString, s -> {
+            if (anagramCount < MAX_DISPLAYED_ANAGRAMS)
+                anagramConsumer.accept(s);
+
+            anagramCount++;
+        }, searchLimit);
         long end = System.currentTimeMillis();
 
-        anagramCount = anagrams.size();
         executionTimeInSeconds = (double) (end - start) / 1000;
+    }
 
-        mainController.updateAnagrams(collectionToString(anagrams));
+    public void stopGeneratingAnagrams() {
+        if (cancellationToken != null)
+            cancellationToken.cancel();
     }
 
     public void generateSubWords(String subWordString) {
@@ -61,7 +87,11 @@ public class AnagramGenerator {
     }
 
     public String getStatus() {
-        return  "Anagrams found: "     + anagramCount +
+        String stoppedEarly = (searchLimit != null && searchLimit.isTruncated()) ? " (stopped early)" : "";
+        String firstShown = (anagramCount > MAX_DISPLAYED_ANAGRAMS) ?
+                " (first " + MAX_DISPLAYED_ANAGRAMS + " shown)" : "";
+
+        return  "Anagrams found: "     + anagramCount + stoppedEarly + firstShown +
                 "   Sub-words found: " + subWordCount +
                 "   Generation time: " + executionTimeInSeconds + " seconds";
     }
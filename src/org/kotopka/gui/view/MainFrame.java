@@ -4,9 +4,15 @@ import org.kotopka.gui.controller.MainController;
 
 import javax.swing.*;
 import java.awt.*;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
 
 public class MainFrame extends JFrame {
 
+    private static final int MAX_PENDING_ANAGRAMS = 1024;
+
     private final MainController mainController;
 
     // menu
@@ -22,13 +28,13 @@ public class MainFrame extends JFrame {
     private final JPanel textEntryPanel;
     private final JPanel centerPanel;
     private final JPanel outputPanel;
-    private final JPanel progressPanel;
     private final JPanel statusPanel;
 
     // anagram entry
     private final JLabel textFieldLabel;
     private final JTextField textField;
     private final JButton button;
+    private final JButton stopButton;
 
     // anagram display
     private final JLabel anagramLabel;
@@ -42,12 +48,9 @@ public class MainFrame extends JFrame {
     private final JScrollPane subWordsScrollPane;
     private final JPanel subWordPanel;
 
-    // progress display
-    private final JLabel progressLabel;
-    private final JProgressBar progressBar;
-
     // status display
     private final JLabel statusLabel;
+    private final JProgressBar progressBar;
 
     public MainFrame(MainController mainController) {
         this.mainController = mainController;
@@ -64,13 +67,13 @@ public class MainFrame extends JFrame {
         this.textEntryPanel = new JPanel();
         this.centerPanel = new JPanel();
         this.outputPanel = new JPanel();
-        this.progressPanel = new JPanel();
         this.statusPanel = new JPanel();
 
         // word text entry
         this.textFieldLabel = new JLabel("Enter text: ");
         this.textField = new JTextField(30);
         this.button = new JButton("Generate!");
+        this.stopButton = new JButton("Stop");
 
         this.anagramLabel = new JLabel("Anagrams");
         this.anagramScrollPane = new JScrollPane();
@@ -82,10 +85,8 @@ public class MainFrame extends JFrame {
         this.subWordsTextArea = new JTextArea(20, 15);
         this.subWordPanel = new JPanel();
 
-        this.progressLabel = new JLabel("Generating anagrams");
-        this.progressBar = new JProgressBar();
-
         this.statusLabel = new JLabel();
+        this.progressBar = new JProgressBar();
 
         setupPanel();
         setupFrame();
@@ -98,7 +99,6 @@ public class MainFrame extends JFrame {
         textEntryPanel.setLayout(new FlowLayout());
         centerPanel.setLayout(cardLayout);
         outputPanel.setLayout(new FlowLayout());
-        progressPanel.setLayout(new BoxLayout(progressPanel, BoxLayout.Y_AXIS));
         statusPanel.setLayout(new FlowLayout());
 
         // anagram entry
@@ -106,6 +106,8 @@ public class MainFrame extends JFrame {
         textEntryPanel.add(textFieldLabel);
         textEntryPanel.add(textField);
         textEntryPanel.add(button);
+        textEntryPanel.add(stopButton);
+        stopButton.setEnabled(false);
         add(mainPanel, BorderLayout.NORTH);
 
         mainPanel.add(centerPanel, BorderLayout.CENTER);
@@ -128,20 +130,16 @@ public class MainFrame extends JFrame {
         outputPanel.add(anagramPanel);
         outputPanel.add(subWordPanel);
 
-        // progress panel
-        progressLabel.setFont(new Font("Sans", Font.PLAIN, 20));
-        progressBar.setIndeterminate(true);
-        progressPanel.add(progressLabel);
-        progressPanel.add(progressBar);
-
-        // setup card layout in the center panel
+        // setup card layout in the center panel, the output is shown while the anagrams are still being generated
         centerPanel.add(new JPanel(), "0"); // empty panel
-        centerPanel.add(progressPanel, "1");
         centerPanel.add(outputPanel, "2");
         cardLayout.show(centerPanel, "0");
 
-        // status
+        // status, with the progress bar next to it while generating
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(false);
         statusPanel.add(statusLabel);
+        statusPanel.add(progressBar);
         statusPanel.setBorder(BorderFactory.createEmptyBorder(0, 0, 10, 0));
         mainPanel.add(statusPanel, BorderLayout.SOUTH);
     }
@@ -162,31 +160,80 @@ public class MainFrame extends JFrame {
     private void setupActionListeners() {
         optionsMenuItem.addActionListener(e -> mainController.showOptionsDialog());
         button.addActionListener(e -> generateAnagramsAndUpdateDisplay());
+        stopButton.addActionListener(e -> mainController.stopGeneratingAnagrams());
     }
 
     private void generateAnagramsAndUpdateDisplay() {
-        Thread generator = new Thread(() -> {
-            String input = textField.getText();
-
-            cardLayout.show(centerPanel, "1");
-
-            setStatusBar("");
-            mainController.generateAnagrams(input);
-            mainController.generateSubWords(input);
-            mainController.updateStatus();
-
-            cardLayout.show(centerPanel, "2");
-        });
-
-        generator.start();
+        String input = textField.getText();
+
+        anagramTextArea.setText("");
+        subWordsTextArea.setText("");
+        setStatusBar("Generating anagrams...");
+        setGenerating(true);
+        cardLayout.show(centerPanel, "2");
+
+        // XXX: each anagram is published as soon as it's found, and the ones published since the last time are
+        //  appended together on the EDT, so the display keeps up without an event per anagram. should the EDT fall
+        //  behind all the same, the search waits for it once MAX_PENDING_ANAGRAMS are waiting to be appended
+        Semaphore pending = new Semaphore(MAX_PENDING_ANAGRAMS);
+
+        SwingWorker<Void, String> generator = new SwingWorker<>() {
+            @Override
+            protected Void doInBackground() {
+                mainController.generateAnagrams(input, anagram -> {
+                    pending.acquireUninterruptibly();
+                    publish(anagram);
+                });
+                mainController.generateSubWords(input);
+
+                return null;
+            }
+
+            @Override
+            protected void process(List<String> anagrams) {
+                StringBuilder sb = new StringBuilder();
+
+                for (String s : anagrams) {
+                    sb.append(s);
+                    sb.append(System.lineSeparator());
+                }
+
+                anagramTextArea.append(sb.toString());
+                pending.release(anagrams.size());
+            }
+
+            @Override
+            protected void done() {
+                setGenerating(false);
+
+                try {
+                    get();
+                    mainController.updateStatus();
+                } catch (CancellationException e) {
+                    // the worker itself is never cancelled, the stop button stops the search, which then ends normally
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    String message = (cause.getMessage() != null) ? cause.getMessage() : cause.toString();
+
+                    setStatusBar("Error generating anagrams: " + message);
+                }
+            }
+        };
+
+        generator.execute();
     }
 
-    public void setAnagramTextArea(String anagram) {
-        anagramTextArea.setText(anagram);
+    private void setGenerating(boolean generating) {
+        button.setEnabled(!generating);
+        stopButton.setEnabled(generating);
+        progressBar.setVisible(generating);
     }
 
+    // called from the thread generating the anagrams as well
     public void setSubWordsTextArea(String subWords) {
-        subWordsTextArea.setText(subWords);
+        SwingUtilities.invokeLater(() -> subWordsTextArea.setText(subWords));
     }
 
     public void setStatusBar(String status) {
@@ -0,0 +1,152 @@
+package org.kotopka.output;
+
+import org.kotopka.anagram.FactorizedAnagram;
+import org.kotopka.anagram.RankedAnagram;
+import org.kotopka.dictionary.Dictionary;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@code BinaryResultWriter} - Writes the results as compact binary records that refer to words by their
+ * {@code Dictionary} ids, see {@code Dictionary.getWordId()}. The stream starts with the bytes {@code ANAG} and a
+ * version byte, then each record starts with a tag byte. Numbers are unsigned varints, 7 bits to a byte with the
+ * high bit set on every byte but the last, and a list is its length followed by its elements.
+ * <pre>
+ * 'W' id, length, UTF-8 bytes               defines a word, before the first record that uses it
+ * 'A' word count, ids                       an anagram
+ * 'R' word count, ids, 8-byte double        a ranked anagram
+ * 'F' factor count, factors                 a factorized anagram, each factor being times, word count, ids
+ * 'C' length, bytes                         a count, as the two's complement bytes of a {@code BigInteger}
+ * 'E' result count, 0 or 1                  the trailer, 1 if the search was stopped early
+ * </pre>
+ * Since every word is defined in the stream, a reader doesn't need the dictionary, while one that has it can skip
+ * the 'W' records.
+ */
+public final class BinaryResultWriter implements ResultWriter {
+
+    public static final int VERSION = 1;
+
+    private final Dictionary dictionary;
+    private final DataOutputStream out;
+    private final BitSet definedWords;
+
+    public BinaryResultWriter(OutputStream stream, Dictionary dictionary) throws IOException {
+        Objects.requireNonNull(stream, "Stream cannot be null");
+        Objects.requireNonNull(dictionary, "Dictionary cannot be null");
+
+        this.dictionary = dictionary;
+        this.out = new DataOutputStream(stream);
+        this.definedWords = new BitSet();
+
+        out.writeBytes("ANAG");
+        out.writeByte(VERSION);
+    }
+
+    @Override
+    public void writeAnagram(String anagram) throws IOException {
+        int[] ids = defineWords(anagram.split(" "));
+
+        out.writeByte('A');
+        writeIds(ids);
+    }
+
+    @Override
+    public void writeRankedAnagram(RankedAnagram anagram) throws IOException {
+        int[] ids = defineWords(anagram.getAnagram().split(" "));
+
+        out.writeByte('R');
+        writeIds(ids);
+        out.writeDouble(anagram.getScore());
+    }
+
+    @Override
+    public void writeFactorizedAnagram(FactorizedAnagram anagram) throws IOException {
+        int[][] ids = new int[anagram.getFactorCount()][];
+
+        for (int f = 0; f < ids.length; f++) {
+            List<String> words = anagram.getWordsOf(f);
+
+            ids[f] = defineWords(words.toArray(new String[0]));
+        }
+
+        out.writeByte('F');
+        writeVarInt(ids.length);
+
+        for (int f = 0; f < ids.length; f++) {
+            writeVarInt(anagram.getMultiplicityOf(f));
+            writeIds(ids[f]);
+        }
+    }
+
+    @Override
+    public void writeCount(BigInteger count) throws IOException {
+        byte[] bytes = count.toByteArray();
+
+        out.writeByte('C');
+        writeVarInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public void finish(String phrase, long resultCount, boolean stoppedEarly) throws IOException {
+        out.writeByte('E');
+        writeVarLong(resultCount);
+        out.writeByte(stoppedEarly ? 1 : 0);
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException { out.close(); }
+
+    // writes a 'W' record for each word not seen before in the stream
+    private int[] defineWords(String[] words) throws IOException {
+        int[] ids = new int[words.length];
+
+        for (int i = 0; i < words.length; i++) {
+            int id = dictionary.getWordId(words[i]);
+
+            if (id < 0)
+                throw new IllegalArgumentException("Word is not in the dictionary: " + words[i]);
+
+            if (!definedWords.get(id)) {
+                byte[] bytes = words[i].getBytes(StandardCharsets.UTF_8);
+
+                definedWords.set(id);
+                out.writeByte('W');
+                writeVarInt(id);
+                writeVarInt(bytes.length);
+                out.write(bytes);
+            }
+
+            ids[i] = id;
+        }
+
+        return ids;
+    }
+
+    private void writeIds(int[] ids) throws IOException {
+        writeVarInt(ids.length);
+
+        for (int id : ids)
+            writeVarInt(id);
+    }
+
+    private void writeVarInt(int value) throws IOException {
+        writeVarLong(value & 0xFFFFFFFFL);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+
+        out.writeByte((int) value);
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.kotopka.output;
+
+import org.kotopka.anagram.FactorizedAnagram;
+import org.kotopka.anagram.RankedAnagram;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * {@code JsonLinesResultWriter} - Writes each result as a JSON object on a line of its own:
+ * <pre>
+ * {"words":["DOG","GOD"]}                                            an anagram
+ * {"words":["DOG","GOD"],"score":-2.0}                               a ranked anagram
+ * {"factors":[{"words":["DOG","GOD"],"times":2}],"phrases":3}        a factorized anagram
+ * {"count":42}                                                       a count
+ * {"phrase":"dog god","results":1,"stoppedEarly":false}              the trailer
+ * </pre>
+ */
+public final class JsonLinesResultWriter implements ResultWriter {
+
+    private final Writer out;
+    private final StringBuilder line;
+
+    public JsonLinesResultWriter(OutputStream stream) {
+        Objects.requireNonNull(stream, "Stream cannot be null");
+
+        this.out = new OutputStreamWriter(stream, StandardCharsets.UTF_8);
+        this.line = new StringBuilder();
+    }
+
+    @Override
+    public void writeAnagram(String anagram) throws IOException {
+        line.append("{\"words\":");
+        appendWords(anagram.split(" "));
+        line.append('}');
+        writeLine();
+    }
+
+    @Override
+    public void writeRankedAnagram(RankedAnagram anagram) throws IOException {
+        double score = anagram.getScore();
+
+        line.append("{\"words\":");
+        appendWords(anagram.getAnagram().split(" "));
+        // XXX: JSON has no infinity or NaN, a score without a value is written as null
+        line.append(",\"score\":").append(Double.isFinite(score) ? Double.toString(score) : "null").append('}');
+        writeLine();
+    }
+
+    @Override
+    public void writeFactorizedAnagram(FactorizedAnagram anagram) throws IOException {
+        line.append("{\"factors\":[");
+
+        for (int f = 0; f < anagram.getFactorCount(); f++) {
+            List<String> words = anagram.getWordsOf(f);
+
+            if (f > 0) line.append(',');
+
+            line.append("{\"words\":");
+            appendWords(words.toArray(new String[0]));
+            line.append(",\"times\":").append(anagram.getMultiplicityOf(f)).append('}');
+        }
+
+        line.append("],\"phrases\":").append(anagram.count()).append('}');
+        writeLine();
+    }
+
+    @Override
+    public void writeCount(BigInteger count) throws IOException {
+        line.append("{\"count\":").append(count).append('}');
+        writeLine();
+    }
+
+    @Override
+    public void finish(String phrase, long resultCount, boolean stoppedEarly) throws IOException {
+        line.append("{\"phrase\":");
+        appendString(phrase);
+        line.append(",\"results\":").append(resultCount).append(",\"stoppedEarly\":").append(stoppedEarly).append('}');
+        writeLine();
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException { out.close(); }
+
+    private void writeLine() throws IOException {
+        line.append('\n');
+        out.append(line);
+        line.setLength(0);
+    }
+
+    private void appendWords(String[] words) {
+        line.append('[');
+
+        for (int i = 0; i < words.length; i++) {
+            if (i > 0) line.append(',');
+
+            appendString(words[i]);
+        }
+
+        line.append(']');
+    }
+
+    private void appendString(String s) {
+        line.append('"');
+
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                case '\t':
+                    line.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20)
+                        line.append(String.format("\\u%04x", (int) c));
+                    else
+                        line.append(c);
+            }
+        }
+
+        line.append('"');
+    }
+
+}
@@ -0,0 +1,36 @@
+package org.kotopka.output;
+
+import org.kotopka.anagram.FactorizedAnagram;
+import org.kotopka.anagram.RankedAnagram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigInteger;
+
+/**
+ * {@code ResultWriter} - Writes the results of a search in a format meant to be read by other programs rather than
+ * people. A {@code ResultWriter} is used from one thread at a time, and {@code finish()} is called once after the
+ * last result, before the writer is closed.
+ */
+public interface ResultWriter extends Closeable {
+
+    /**
+     * @param anagram the words of the anagram separated by spaces, the way the search passes them on
+     */
+    void writeAnagram(String anagram) throws IOException;
+
+    void writeRankedAnagram(RankedAnagram anagram) throws IOException;
+
+    void writeFactorizedAnagram(FactorizedAnagram anagram) throws IOException;
+
+    void writeCount(BigInteger count) throws IOException;
+
+    /**
+     * {@code finish()} - Writes the trailer that tells a complete set of results from one cut short
+     * @param phrase the phrase that was searched
+     * @param resultCount the number of results written
+     * @param stoppedEarly whether the search was stopped before it found every result
+     */
+    void finish(String phrase, long resultCount, boolean stoppedEarly) throws IOException;
+
+}
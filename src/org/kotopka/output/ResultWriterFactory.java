@@ -0,0 +1,51 @@
+package org.kotopka.output;
+
+import org.kotopka.dictionary.Dictionary;
+import org.kotopka.parser.Parser;
+import org.kotopka.parser.Switch;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * {@code ResultWriterFactory} - Creates the {@code ResultWriter} for the output format and gzip options of a
+ * {@code Parser}.
+ */
+public class ResultWriterFactory {
+
+    public static final String TEXT = "text";
+    public static final String JSON_LINES = "jsonl";
+    public static final String BINARY = "binary";
+
+    private static final int GZIP_BUFFER_SIZE = 1 << 16;
+
+    public static boolean isTextFormat(Parser parser) {
+        return parser.getOption(Switch.OUTPUT_FORMAT).getString().equals(TEXT);
+    }
+
+    /**
+     * {@code getResultWriter()} - Creates a {@code ResultWriter} writing to the stream
+     * @param parser the {@code Parser} holding the options
+     * @param dictionary the {@code Dictionary} the word ids of the binary format come from
+     * @param stream the stream to write to, which is closed along with the writer
+     * @return the {@code ResultWriter}
+     * @throws IllegalArgumentException if the output format is unknown or is the text format
+     */
+    public static ResultWriter getResultWriter(Parser parser, Dictionary dictionary, OutputStream stream)
+            throws IOException {
+        String format = parser.getOption(Switch.OUTPUT_FORMAT).getString();
+
+        if (!format.equals(JSON_LINES) && !format.equals(BINARY))
+            throw new IllegalArgumentException("Unknown output format: " + format);
+
+        if (parser.getOption(Switch.GZIP_OUTPUT).getBool())
+            stream = new GZIPOutputStream(stream, GZIP_BUFFER_SIZE);
+
+        if (format.equals(JSON_LINES))
+            return new JsonLinesResultWriter(stream);
+        else
+            return new BinaryResultWriter(stream, dictionary);
+    }
+
+}
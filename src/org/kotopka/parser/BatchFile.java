@@ -0,0 +1,18 @@
+package org.kotopka.parser;
+
+public class BatchFile extends AbstractStringOption {
+
+    public BatchFile() {
+        this.commandlineSwitch = Switch.BATCH_FILE;
+        this.description = "Batch file";
+        this.extendedHelpMessage =
+                "Batch File -- " +
+                "Reads phrases one per line from the file, or from standard input if the file is -, and finds " +
+                "the anagrams of each of them instead of a single phrase. Each line of output is the phrase and " +
+                "a result separated by a tab. The phrases are worked on side by side by as many threads as the " +
+                "parallelism option, or as there are processors without it, each phrase on a single thread. A " +
+                "phrase whose search fails gets a line with the error in place of its results." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <filename or ->";
+    }
+
+}
@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class CompileDictionary extends AbstractStringOption {
+
+    public CompileDictionary() {
+        this.commandlineSwitch = Switch.COMPILE_DICTIONARY;
+        this.description = "Compile dictionary to file";
+        this.extendedHelpMessage =
+                "Compile Dictionary -- " +
+                "Writes the dictionary, after the dictionary options have been applied, to a binary file and exits. " +
+                "The compiled file can be used with the " + Switch.DICT_FILE + " option and loads much faster " +
+                "than the text file, as it holds the dictionary tables ready-made." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <filename>";
+    }
+
+}
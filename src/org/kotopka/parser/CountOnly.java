@@ -0,0 +1,15 @@
+package org.kotopka.parser;
+
+public class CountOnly extends AbstractBooleanOption {
+
+    public CountOnly() {
+        this.commandlineSwitch = Switch.COUNT_ONLY;
+        this.description = "Count anagrams only";
+        this.extendedHelpMessage =
+                "Count Only -- " +
+                "Prints the number of anagrams instead of the anagrams themselves, without generating them. " +
+                "Max results and timeout are ignored. This option does not take additional parameters." + NEWLINE +
+                "\tUsage: " + commandlineSwitch;
+    }
+
+}
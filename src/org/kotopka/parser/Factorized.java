@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class Factorized extends AbstractBooleanOption {
+
+    public Factorized() {
+        this.commandlineSwitch = Switch.FACTORIZED;
+        this.description = "Print factorized anagrams";
+        this.extendedHelpMessage =
+                "Factorized -- " +
+                "Searches over groups of words with the same letters and prints each anagram as its groups, " +
+                "e.g. [least|slate|stale] [ab], instead of printing every phrase. Anagrams are found as with " +
+                "restricted permutations. This option does not take additional parameters." + NEWLINE +
+                "\tUsage: " + commandlineSwitch;
+    }
+
+}
@@ -0,0 +1,15 @@
+package org.kotopka.parser;
+
+public class GzipOutput extends AbstractBooleanOption {
+
+    public GzipOutput() {
+        this.commandlineSwitch = Switch.GZIP_OUTPUT;
+        this.description = "Gzip output";
+        this.extendedHelpMessage =
+                "Gzip Output -- " +
+                "Compresses the results with gzip. Only applies to the \"jsonl\" and \"binary\" output formats. " +
+                "This option does not take additional parameters." + NEWLINE +
+                "\tUsage: " + commandlineSwitch;
+    }
+
+}
@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class MaxConcurrentRequests extends AbstractIntOption {
+
+    public MaxConcurrentRequests() {
+        this.commandlineSwitch = Switch.MAX_CONCURRENT_REQUESTS;
+        this.description = "Max concurrent requests";
+        this.value = Runtime.getRuntime().availableProcessors();
+        this.extendedHelpMessage =
+                "Max Concurrent Requests -- " +
+                "Number of requests the anagram server works on at once, any more are turned away as busy. " +
+                "Only used when starting the server. The default is the number of processors." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <requests>";
+    }
+
+}
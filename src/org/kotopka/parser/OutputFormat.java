@@ -0,0 +1,18 @@
+package org.kotopka.parser;
+
+public class OutputFormat extends AbstractStringOption {
+
+    public OutputFormat() {
+        this.commandlineSwitch = Switch.OUTPUT_FORMAT;
+        this.description = "Output format";
+        this.value = "text";
+        this.extendedHelpMessage =
+                "Output Format -- " +
+                "How the results are written to standard output: \"text\" for the human readable output, " +
+                "\"jsonl\" for one JSON object per line, or \"binary\" for length-prefixed records of dictionary " +
+                "word ids. With \"jsonl\" and \"binary\" nothing but the results goes to standard output, and the " +
+                "sub-words and progress messages are left out. Defaults to \"text\"." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <text|jsonl|binary>";
+    }
+
+}
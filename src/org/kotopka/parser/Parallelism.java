@@ -0,0 +1,17 @@
+package org.kotopka.parser;
+
+public class Parallelism extends AbstractIntOption {
+
+    public Parallelism() {
+        this.commandlineSwitch = Switch.PARALLELISM;
+        this.description = "Parallelism";
+        this.value = 0; // not given, see the help message
+        this.extendedHelpMessage =
+                "Parallelism -- " +
+                "Number of threads used to generate anagrams. The search is split between the threads " +
+                "starting with the first word of the anagram. Without it a search runs on a single thread, " +
+                "while a batch file is worked on by a thread per processor." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <threads>";
+    }
+
+}
@@ -14,6 +14,7 @@ public class ParserFactory {
                     new MinWordLen(),
                     new MaxWordLen(),
                     new ExcludeFile(),
+                    new CompileDictionary(),
                     new MaxResults(),
                     new Timeout(),
                     new MaxWords(),
@@ -23,6 +24,19 @@ public class ParserFactory {
                     new IncludeWordWithSuffix(),
                     new RestrictPermutations(),
                     new ExcludeDuplicates(),
+                    new Parallelism(),
+                    new SubWordCacheSize(),
+                    new CountOnly(),
+                    new Factorized(),
+                    new TopK(),
+                    new ScoreBy(),
+                    new RarestLetterFirst(),
+                    new ServerPort(),
+                    new MaxConcurrentRequests(),
+                    new BatchFile(),
+                    new SortedOutput(),
+                    new OutputFormat(),
+                    new GzipOutput(),
                     new HelpMessage(),
                     new ExtendedHelpMessage(),
                     new PrintState(),
@@ -12,7 +12,8 @@ public class PrintState extends AbstractBooleanOption {
         this.description = "Print state";
         this.extendedHelpMessage =
                 "Print State -- " +
-                "Prints the current state of options collected from the commandline and their respective values. " +
+                "Prints the current state of options collected from the commandline and their respective values, " +
+                "and the counters of the sub-word cache to standard error once the search is done. " +
                 "This option does not take additional parameters." + NEWLINE +
                 "\tUsage: " + commandlineSwitch;
     }
@@ -0,0 +1,17 @@
+package org.kotopka.parser;
+
+public class RarestLetterFirst extends AbstractBooleanOption {
+
+    public RarestLetterFirst() {
+        this.commandlineSwitch = Switch.RAREST_LETTER_FIRST;
+        this.description = "Branch on the rarest letter first";
+        this.extendedHelpMessage =
+                "Rarest Letter First -- " +
+                "Finds each set of words only once by trying, at every step, just the words containing the " +
+                "remaining letter that the fewest words contain. Without restricted permutations every ordering " +
+                "of each set is printed after it's found rather than searched for. Parallelism is ignored. " +
+                "This option does not take additional parameters." + NEWLINE +
+                "\tUsage: " + commandlineSwitch;
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.kotopka.parser;
+
+public class ScoreBy extends AbstractStringOption {
+
+    public ScoreBy() {
+        this.commandlineSwitch = Switch.SCORE_BY;
+        this.description = "Score by";
+        this.value = "words";
+        this.extendedHelpMessage =
+                "Score By -- " +
+                "How the top anagrams are ranked: \"words\" for the fewest words, \"length\" for the longest shortest " +
+                "word, or the name of a word frequency file with a word and its count on each line to rank anagrams " +
+                "of common words first. Defaults to \"words\"." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <words|length|filename>";
+    }
+
+}
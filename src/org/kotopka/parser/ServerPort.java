@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class ServerPort extends AbstractIntOption {
+
+    public ServerPort() {
+        this.commandlineSwitch = Switch.SERVER_PORT;
+        this.description = "Server port";
+        this.value = 8080;
+        this.extendedHelpMessage =
+                "Server Port -- " +
+                "Port the anagram server listens on, on the loopback address only. Only used when starting " +
+                "the server. The default is 8080." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <port>";
+    }
+
+}
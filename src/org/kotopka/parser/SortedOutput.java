@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class SortedOutput extends AbstractBooleanOption {
+
+    public SortedOutput() {
+        this.commandlineSwitch = Switch.SORTED_OUTPUT;
+        this.description = "Sorted output";
+        this.extendedHelpMessage =
+                "Sorted Output -- " +
+                "Prints the anagrams in alphabetical order once the search is done, instead of printing each " +
+                "one as soon as it's found. Keeps every anagram in memory until then. This option does not take " +
+                "additional parameters." + NEWLINE +
+                "\tUsage: " + commandlineSwitch;
+    }
+
+}
@@ -0,0 +1,17 @@
+package org.kotopka.parser;
+
+public class SubWordCacheSize extends AbstractIntOption {
+
+    public SubWordCacheSize() {
+        this.commandlineSwitch = Switch.SUB_WORD_CACHE_SIZE;
+        this.description = "Sub-word cache size";
+        this.value = 256;
+        this.extendedHelpMessage =
+                "Sub-word Cache Size -- " +
+                "Maximum number of phrases whose sub-words are kept in the cache. When the cache is full the " +
+                "least recently used phrase is evicted. A size of 0 turns off the cache. The number of hits, misses and " +
+                "evictions of the cache is printed along with the elapsed time, to help choose a size." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <entries>";
+    }
+
+}
@@ -10,6 +10,7 @@ public enum Switch {
     MIN_WORD_LENGTH("-minwl"),
     MAX_WORD_LENGTH("-maxwl"),
     EXCLUDE_FROM_DICT_FILE("-ef"),
+    COMPILE_DICTIONARY("-cd"),
     MAX_RESULTS("-mr"),
     TIMEOUT("-to"),
     MAX_WORDS("-mw"),
@@ -19,6 +20,19 @@ public enum Switch {
     INCLUDE_WORD("-iw"),
     EXCLUDE_WORD("-ew"),
     INCLUDE_WORD_WITH_SUFFIX("-iws"),
+    PARALLELISM("-pl"),
+    SUB_WORD_CACHE_SIZE("-cs"),
+    COUNT_ONLY("-co"),
+    FACTORIZED("-fz"),
+    TOP_K("-tk"),
+    SCORE_BY("-sb"),
+    RAREST_LETTER_FIRST("-rl"),
+    SERVER_PORT("-port"),
+    MAX_CONCURRENT_REQUESTS("-mcr"),
+    BATCH_FILE("-bf"),
+    SORTED_OUTPUT("-so"),
+    OUTPUT_FORMAT("-of"),
+    GZIP_OUTPUT("-gz"),
     HELP("-h"),
     EXTENDED_HELP("-xh"),
     PRINT_STATE("-ps"),
@@ -8,8 +8,8 @@ public class Timeout extends AbstractIntOption {
         this.value = Integer.MAX_VALUE;
         this.extendedHelpMessage =
                 "Timeout -- " +
-                "Time in seconds to attempt anagram generation. " +
-                "Note: this is a best attempt effort and the actual running time may be longer or shorter " + NEWLINE +
+                "Time in seconds to attempt anagram generation. The search stops within a few thousand " +
+                "nodes of the timeout and reports that it was stopped early." + NEWLINE +
                 "\tUsage: " + commandlineSwitch + " <timeout in seconds>";
     }
 
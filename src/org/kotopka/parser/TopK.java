@@ -0,0 +1,16 @@
+package org.kotopka.parser;
+
+public class TopK extends AbstractIntOption {
+
+    public TopK() {
+        this.commandlineSwitch = Switch.TOP_K;
+        this.description = "Top anagrams";
+        this.value = 0;
+        this.extendedHelpMessage =
+                "Top Anagrams -- " +
+                "Finds only the best anagrams as ranked by the score option, pruning anything that can't beat the " +
+                "anagrams found so far instead of generating every anagram. The default of 0 finds all anagrams." + NEWLINE +
+                "\tUsage: " + commandlineSwitch + " <number of anagrams>";
+    }
+
+}
@@ -0,0 +1,433 @@
+package org.kotopka.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.kotopka.anagram.Anagram;
+import org.kotopka.anagram.AnagramScorer;
+import org.kotopka.anagram.CancellationToken;
+import org.kotopka.anagram.RankedAnagram;
+import org.kotopka.anagram.SearchLimit;
+import org.kotopka.anagram.SubWordCache;
+import org.kotopka.dictionary.Dictionary;
+import org.kotopka.dictionary.DictionaryFactory;
+import org.kotopka.parser.Parser;
+import org.kotopka.parser.ParserFactory;
+import org.kotopka.parser.Switch;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.InetAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * {@code AnagramServer} - A long-running anagram server on the loopback address, which loads its {@code Dictionary}
+ * once and answers queries over HTTP so that each query doesn't pay for starting a JVM and loading a dictionary.
+ *
+ * <p>The server takes the same commandline options as {@code AnagramFinder}. The dictionary options pick the
+ * dictionary, the timeout caps the timeout of every request (30 seconds if not given) and the port and max concurrent
+ * requests options set up the server itself. Queries are {@code GET} requests with the phrase in the {@code phrase}
+ * parameter:</p>
+ * <ul>
+ *     <li>{@code /single} - the single-word anagrams of the phrase</li>
+ *     <li>{@code /subwords} - the valid sub-words of the phrase</li>
+ *     <li>{@code /anagrams} - the multi-word anagrams of the phrase, with the anagram options as parameters named
+ *     after their switches without the dash, e.g. {@code /anagrams?phrase=astronomer&mr=10&rp}</li>
+ * </ul>
+ *
+ * <p>Each result goes on a line of its own and is sent within {@code FLUSH_INTERVAL_IN_MILLIS} of being found. A
+ * search stopped early by its timeout ends with the line {@code # stopped early}, and a search whose client goes away
+ * is cancelled. Requests past the max concurrent requests are answered with {@code 503} straight away, by the thread
+ * accepting the requests, so they never wait behind the requests being searched.</p>
+ */
+public final class AnagramServer {
+
+    private static final int DEFAULT_TIMEOUT_IN_SECONDS = 30;
+    private static final String STOPPED_EARLY = "# stopped early";
+    private static final long FLUSH_INTERVAL_IN_MILLIS = 50;
+
+    private final Dictionary dictionary;
+    private final SubWordCache subWordCache;
+    private final int maxTimeoutInSeconds;
+    private final Semaphore requestPermits;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService flusher;
+
+    public AnagramServer(Dictionary dictionary, int port, int maxConcurrentRequests, int maxTimeoutInSeconds,
+                         int subWordCacheSize) throws IOException {
+        Objects.requireNonNull(dictionary, "Dictionary cannot be null");
+
+        if (maxConcurrentRequests <= 0) throw new IllegalArgumentException("Max concurrent requests must be positive");
+        if (maxTimeoutInSeconds <= 0) throw new IllegalArgumentException("Max timeout must be positive");
+
+        this.dictionary = dictionary;
+        this.subWordCache = new SubWordCache(subWordCacheSize);
+        this.maxTimeoutInSeconds = maxTimeoutInSeconds;
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+        this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+
+        // XXX: the server has no executor of its own, so the handlers run on the thread accepting the requests and
+        //  only hand a request over to the executor once it has a permit. there's then a thread for every permit
+        this.executor = Executors.newFixedThreadPool(maxConcurrentRequests);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "anagram-server-flusher");
+
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        server.createContext("/single", limited(this::handleSingle));
+        server.createContext("/subwords", limited(this::handleSubWords));
+        server.createContext("/anagrams", limited(this::handleAnagrams));
+    }
+
+    public void start() { server.start(); }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+        flusher.shutdownNow();
+    }
+
+    public int getPort() { return server.getAddress().getPort(); }
+
+    // answers requests past the limit and those that aren't GETs on the accepting thread, and those without a phrase
+    // before they get anywhere
+    private HttpHandler limited(RequestHandler handler) {
+        return exchange -> {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                try (exchange) {
+                    sendError(exchange, 405, "Only GET requests are supported");
+                }
+
+                return;
+            }
+
+            if (!requestPermits.tryAcquire()) {
+                try (exchange) {
+                    sendError(exchange, 503, "Server busy, try again later");
+                }
+
+                return;
+            }
+
+            executor.execute(() -> {
+                // the errors are answered inside the try-with-resources, which closes the exchange before any of its
+                // catch blocks would run
+                try (exchange) {
+                    try {
+                        Map<String, List<String>> params = parseQuery(exchange.getRequestURI().getRawQuery());
+                        String phrase = getLast(params, "phrase");
+
+                        if (phrase == null || phrase.isBlank())
+                            throw new IllegalArgumentException("No phrase given");
+
+                        params.remove("phrase");
+                        handler.handle(exchange, phrase, params);
+                    } catch (IllegalArgumentException e) {
+                        sendErrorQuietly(exchange, 400, e.getMessage());
+                    } catch (RuntimeException e) {
+                        // a response already under way can't change its status, the client sees it cut short instead
+                        System.err.println("Error answering request: " + exchange.getRequestURI());
+                        e.printStackTrace();
+                        sendErrorQuietly(exchange, 500, "Internal server error");
+                    }
+                } catch (IOException e) {
+                    // the client has gone away, there's no one left to answer
+                } finally {
+                    requestPermits.release();
+                }
+            });
+        };
+    }
+
+    private void handleSingle(HttpExchange exchange, String phrase, Map<String, List<String>> params)
+            throws IOException {
+        List<String> words = newAnagram(params).findSingleWordAnagramsOf(phrase);
+
+        try (ResponseWriter writer = new ResponseWriter(exchange, new CancellationToken(), flusher)) {
+            words.forEach(writer);
+        }
+    }
+
+    private void handleSubWords(HttpExchange exchange, String phrase, Map<String, List<String>> params)
+            throws IOException {
+        Set<String> subWords = newAnagram(params).findAllValidSubWordsAsSet(phrase);
+
+        try (ResponseWriter writer = new ResponseWriter(exchange, new CancellationToken(), flusher)) {
+            subWords.forEach(writer);
+        }
+    }
+
+    private void handleAnagrams(HttpExchange exchange, String phrase, Map<String, List<String>> params)
+            throws IOException {
+        CancellationToken token = new CancellationToken();
+        Anagram anagram = newAnagram(params).setCancellationToken(token);
+        int topK = getInt(params, Switch.TOP_K, 0);
+        AnagramScorer scorer = getScorer(params);
+        boolean countOnly = getBool(params, Switch.COUNT_ONLY);
+        boolean factorized = getBool(params, Switch.FACTORIZED);
+
+        if (topK < 0) throw new IllegalArgumentException("Top anagrams cannot be negative");
+
+        try (ResponseWriter writer = new ResponseWriter(exchange, token, flusher)) {
+            SearchLimit limit = anagram.newSearchLimit();
+
+            if (topK > 0) {
+                for (RankedAnagram ranked : anagram.findTopAnagramsOf(phrase, topK, scorer, limit))
+                    writer.accept(ranked.toString());
+            } else if (countOnly) {
+                writer.accept(anagram.countMultipleWordAnagramsOf(phrase, limit).toString());
+            } else if (factorized) {
+                anagram.findFactorizedAnagramsOf(phrase, found -> writer.accept(found.toString()), limit);
+            } else {
+                anagram.findMultipleWordAnagramsOf(phrase, writer, limit);
+            }
+
+            if (limit.isTruncated() && !writer.isClosedByClient())
+                writer.accept(STOPPED_EARLY);
+        }
+    }
+
+    // every request gets an Anagram of its own with its own options, all of them sharing the dictionary and the
+    // sub-word cache. the options are checked before anything is sent so that a bad one can still get a 400
+    private Anagram newAnagram(Map<String, List<String>> params) {
+        Anagram anagram = new Anagram(dictionary)
+                .setSubWordCache(subWordCache)
+                .setMaxTimeoutInSeconds(Math.min(getInt(params, Switch.TIMEOUT, maxTimeoutInSeconds),
+                        maxTimeoutInSeconds));
+
+        for (Map.Entry<String, List<String>> param : params.entrySet()) {
+            Switch option = Switch.get("-" + param.getKey());
+
+            if (option == null || option == Switch.COLLECT_PHRASE || option == Switch.DEFAULT_DELIMITER)
+                throw new IllegalArgumentException("Invalid option: " + param.getKey());
+
+            switch (option) {
+                case MAX_RESULTS:
+                    anagram.setMaxResults(getInt(params, option, Integer.MAX_VALUE));
+                    break;
+                case MAX_WORDS:
+                    anagram.setMaxWordsInAnagram(getInt(params, option, Integer.MAX_VALUE));
+                    break;
+                case EXCLUDE_DUPLICATES:
+                    anagram.setShouldExcludeDuplicates(getBool(params, option));
+                    break;
+                case RESTRICT_PERMUTATIONS:
+                    anagram.setShouldRestrictPermutations(getBool(params, option));
+                    break;
+                case RAREST_LETTER_FIRST:
+                    anagram.setShouldBranchOnRarestLetter(getBool(params, option));
+                    break;
+                case START_FROM:
+                    anagram.setStartFrom(param.getValue().get(param.getValue().size() - 1));
+                    break;
+                case INCLUDE_WORD:
+                    anagram.setIncludeWord(param.getValue().get(param.getValue().size() - 1));
+                    break;
+                case INCLUDE_WORD_WITH_SUFFIX:
+                    anagram.setIncludeWordWithSuffix(param.getValue().get(param.getValue().size() - 1));
+                    break;
+                case EXCLUDE_WORD:
+                    param.getValue().forEach(anagram::setExcludeWord); // unlike the commandline, can be repeated
+                    break;
+                case TIMEOUT:
+                case COUNT_ONLY:
+                case FACTORIZED:
+                case TOP_K:
+                case SCORE_BY:
+                    break; // read by the handler
+                default:
+                    // XXX: the dictionary, the cache and the server are set up once when starting the server, and
+                    // each request runs on a single thread since the server already runs requests side by side
+                    throw new IllegalArgumentException("Option " + option + " can only be given to the server");
+            }
+        }
+
+        return anagram;
+    }
+
+    // word frequency files aren't read on request, only the built-in scores are available
+    private static AnagramScorer getScorer(Map<String, List<String>> params) {
+        String scoreBy = Objects.requireNonNullElse(getLast(params, label(Switch.SCORE_BY)), "words");
+
+        switch (scoreBy) {
+            case "words":
+                return AnagramScorer.fewestWords();
+            case "length":
+                return AnagramScorer.longestShortestWord();
+            default:
+                throw new IllegalArgumentException("Invalid score: " + scoreBy);
+        }
+    }
+
+    private static int getInt(Map<String, List<String>> params, Switch option, int defaultValue) {
+        String value = getLast(params, label(option));
+
+        if (value == null) return defaultValue;
+
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid number format: " + value);
+        }
+    }
+
+    // a boolean option is set by its name alone as well as by "true"
+    private static boolean getBool(Map<String, List<String>> params, Switch option) {
+        String value = getLast(params, label(option));
+
+        return value != null && (value.isEmpty() || Boolean.parseBoolean(value));
+    }
+
+    private static String label(Switch option) {
+        return option.getLabel().substring(Switch.getDefault().length());
+    }
+
+    private static String getLast(Map<String, List<String>> params, String name) {
+        List<String> values = params.get(name);
+
+        return (values == null) ? null : values.get(values.size() - 1);
+    }
+
+    private static Map<String, List<String>> parseQuery(String rawQuery) {
+        Map<String, List<String>> params = new LinkedHashMap<>();
+
+        if (rawQuery == null) return params;
+
+        for (String pair : rawQuery.split("&")) {
+            if (pair.isEmpty()) continue;
+
+            int equals = pair.indexOf('=');
+            String name = decode((equals < 0) ? pair : pair.substring(0, equals));
+            String value = (equals < 0) ? "" : decode(pair.substring(equals + 1));
+
+            params.computeIfAbsent(name, n -> new ArrayList<>()).add(value);
+        }
+
+        return params;
+    }
+
+    private static String decode(String s) {
+        return URLDecoder.decode(s, StandardCharsets.UTF_8);
+    }
+
+    private static void sendError(HttpExchange exchange, int status, String message) throws IOException {
+        byte[] body = (message + "\n").getBytes(StandardCharsets.UTF_8);
+
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+    }
+
+    private static void sendErrorQuietly(HttpExchange exchange, int status, String message) {
+        try {
+            sendError(exchange, status, message);
+        } catch (IOException e) {
+            // the client has gone away, there's no one left to answer
+        }
+    }
+
+    @FunctionalInterface
+    private interface RequestHandler {
+        void handle(HttpExchange exchange, String phrase, Map<String, List<String>> params) throws IOException;
+    }
+
+    /**
+     * {@code ResponseWriter} - Streams results to the client a line at a time. The lines are buffered and flushed every
+     * {@code FLUSH_INTERVAL_IN_MILLIS} by the flusher, rather than one by one, so a search with millions of results
+     * doesn't send a chunk for each of them. Once the client has gone away, which a write or a flush finds out, the
+     * search is cancelled through its token and anything else it finds is dropped.
+     */
+    private static final class ResponseWriter implements Consumer<String>, Closeable {
+        private final Writer writer;
+        private final CancellationToken token;
+        private final ScheduledFuture<?> flushes;
+        private volatile boolean closedByClient;
+
+        private ResponseWriter(HttpExchange exchange, CancellationToken token, ScheduledExecutorService flusher)
+                throws IOException {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+            exchange.sendResponseHeaders(200, 0); // chunked, the length isn't known until the search is done
+
+            // XXX: a Writer locks itself on every call, so the flusher can flush it while the search writes to it
+            this.writer = new BufferedWriter(
+                    new OutputStreamWriter(exchange.getResponseBody(), StandardCharsets.UTF_8));
+            this.token = token;
+            this.flushes = flusher.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_IN_MILLIS,
+                    FLUSH_INTERVAL_IN_MILLIS, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void accept(String line) {
+            if (closedByClient) return;
+
+            try {
+                writer.write(line);
+                writer.write('\n');
+            } catch (IOException e) {
+                closeByClient();
+            }
+        }
+
+        private void flush() {
+            if (closedByClient) return;
+
+            try {
+                writer.flush();
+            } catch (IOException e) {
+                closeByClient();
+            }
+        }
+
+        private void closeByClient() {
+            closedByClient = true;
+            token.cancel();
+        }
+
+        private boolean isClosedByClient() { return closedByClient; }
+
+        @Override
+        public void close() {
+            flushes.cancel(false);
+
+            try {
+                writer.close();
+            } catch (IOException e) {
+                closedByClient = true;
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Parser commandlineParser = ParserFactory.getParser(args);
+        Dictionary dictionary = DictionaryFactory.getDictionary(commandlineParser);
+        int timeout = commandlineParser.getOption(Switch.TIMEOUT).getInt();
+
+        try {
+            AnagramServer server = new AnagramServer(dictionary,
+                    commandlineParser.getOption(Switch.SERVER_PORT).getInt(),
+                    commandlineParser.getOption(Switch.MAX_CONCURRENT_REQUESTS).getInt(),
+                    (timeout == Integer.MAX_VALUE) ? DEFAULT_TIMEOUT_IN_SECONDS : timeout,
+                    commandlineParser.getOption(Switch.SUB_WORD_CACHE_SIZE).getInt());
+
+            server.start();
+            System.out.println("Anagram server listening on http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Error starting anagram server!");
+            System.exit(-1);
+        }
+    }
+
+}
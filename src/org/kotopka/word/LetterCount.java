@@ -0,0 +1,267 @@
+package org.kotopka.word;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * {@code LetterCount} - A fixed-size histogram of the letters {@code a} through {@code z} and the symbols, such as
+ * apostrophes, in a word or phrase.
+ *
+ * <p>Unlike the {@code String} operations in {@code Word}, the operations on a {@code LetterCount} work in place
+ * and don't allocate, which makes it suitable for the inner loops of the anagram search. Every character that
+ * {@code Word.sortLetters()} keeps in a key is counted, i.e. everything but spaces and other whitespace after
+ * lower-casing, so two words have equal {@code LetterCount}s exactly when they have the same key and a word with an
+ * apostrophe only fits inside a phrase with one.</p>
+ *
+ * <p>Each {@code LetterCount} keeps track of how far into the histogram its letters go, so that words made only of
+ * the letters {@code a-z}, which is nearly all of them, are compared over those slots alone.</p>
+ *
+ * <ul>
+ *     <li>{@code contains()} - Checks whether all the letters of another {@code LetterCount} fit inside this one.</li>
+ *     <li>{@code subtract()} - Removes the letters of another {@code LetterCount} from this one.</li>
+ *     <li>{@code add()} - Adds the letters of another {@code LetterCount} to this one.</li>
+ *     <li>{@code isEmpty()} - Checks whether there are any letters left.</li>
+ *     <li>{@code getSlotCount()} - Gets how far into the histogram the letters go.</li>
+ * </ul>
+ */
+public final class LetterCount {
+
+    public static final int ALPHABET_SIZE = 64; // the slots of a word still fit in the bits of a long
+
+    private static final int LETTERS = 26;
+
+    // XXX: the slots after the letters go to the symbols of the dictionaries in the order they're indexed, the
+    //  apostrophe having the first one up front. two different symbols never share a slot, they would make words that
+    //  aren't anagrams count as ones, so a symbol past the last slot is turned away instead, see claimSymbols(). the
+    //  symbols of a phrase never get a slot of their own, one the dictionaries don't use all go to the last slot,
+    //  which no word counts and so matches nothing
+    private static final int UNKNOWN_SYMBOL = ALPHABET_SIZE - 1;
+    private static final char UNKNOWN_SYMBOL_CHAR = '\uFFFF';
+
+    private static final char[] SYMBOLS = new char[UNKNOWN_SYMBOL - LETTERS];
+    private static volatile int symbolCount;
+
+    static {
+        SYMBOLS[0] = '\'';
+        symbolCount = 1;
+    }
+
+    private final int[] counts;
+    private int size;
+    private int end; // no slot from here on has ever been counted
+
+    private LetterCount(int[] counts, int size, int end) {
+        this.counts = counts;
+        this.size = size;
+        this.end = end;
+    }
+
+    /**
+     * {@code of()} - Creates a {@code LetterCount} of the letters in the word
+     * @param word the word to count the letters of
+     * @return a new {@code LetterCount} of the letters in {@code word}
+     */
+    public static LetterCount of(String word) {
+        Objects.requireNonNull(word, "String object cannot be null");
+
+        int[] counts = new int[ALPHABET_SIZE];
+        int size = 0;
+        int end = 0;
+
+        for (int i = 0; i < word.length(); i++) {
+            int index = indexOf(Character.toLowerCase(word.charAt(i)));
+
+            if (index >= 0) {
+                counts[index]++;
+                size++;
+                end = Math.max(end, index + 1);
+            }
+        }
+
+        return new LetterCount(counts, size, end);
+    }
+
+    /**
+     * {@code indexOf()} - Gets the slot of the letter or symbol in the histogram. A symbol without a slot of its own,
+     * i.e. one that no dictionary has, gets the slot that matches nothing.
+     * @param letter a lower-case letter or a symbol
+     * @return the index of {@code letter} in the range {@code [0, ALPHABET_SIZE)}, or {@code -1} if it is not counted
+     */
+    public static int indexOf(char letter) {
+        if (letter >= 'a' && letter <= 'z') return letter - 'a';
+        if (letter <= ' ') return -1; // whitespace, which Word.sortLetters() trims off
+
+        int count = symbolCount;
+
+        for (int i = 0; i < count; i++)
+            if (SYMBOLS[i] == letter) return LETTERS + i;
+
+        return UNKNOWN_SYMBOL;
+    }
+
+    /**
+     * {@code claimSymbols()} - Gives each symbol in the word that doesn't have a slot yet one of its own. Only the
+     * dictionaries claim slots, as they are indexed, so the words in a phrase can't use them up.
+     * @param word the dictionary word, or the symbols of one
+     * @throws IllegalArgumentException if a symbol not seen before is left and every slot is taken
+     */
+    public static void claimSymbols(CharSequence word) {
+        for (int i = 0; i < word.length(); i++) {
+            char letter = Character.toLowerCase(word.charAt(i));
+
+            if (indexOf(letter) == UNKNOWN_SYMBOL)
+                addSymbol(letter);
+        }
+    }
+
+    private static synchronized int addSymbol(char symbol) {
+        for (int i = 0; i < symbolCount; i++)
+            if (SYMBOLS[i] == symbol) return LETTERS + i;
+
+        if (symbolCount == SYMBOLS.length)
+            throw new IllegalArgumentException("Too many different symbols, no room left for: " + symbol);
+
+        SYMBOLS[symbolCount] = symbol;
+        symbolCount++; // publishes the symbol to the unsynchronized reads in indexOf()
+
+        return LETTERS + symbolCount - 1;
+    }
+
+    private static char charOf(int index) {
+        if (index == UNKNOWN_SYMBOL) return UNKNOWN_SYMBOL_CHAR;
+
+        return (index < LETTERS) ? (char) ('a' + index) : SYMBOLS[index - LETTERS];
+    }
+
+    /**
+     * {@code getSymbols()} - Gets the symbols that have a slot so far, see {@code indexOf()}
+     * @return the symbols in the order of their slots, the first one coming right after {@code z}
+     */
+    public static String getSymbols() {
+        return String.valueOf(SYMBOLS, 0, symbolCount);
+    }
+
+    public LetterCount copy() {
+        return new LetterCount(counts.clone(), size, end);
+    }
+
+    public int size() { return size; }
+
+    // every slot from here on is 0, here and in any LetterCount these letters contain
+    public int getSlotCount() { return end; }
+
+    public boolean isEmpty() { return size == 0; }
+
+    // a symbol no dictionary has, which no word can use up
+    public boolean hasUnknownSymbols() { return end > UNKNOWN_SYMBOL && counts[UNKNOWN_SYMBOL] > 0; }
+
+    public int getCount(int index) { return counts[index]; }
+
+    // single-letter versions of subtract() and add(), used when walking letter-by-letter
+    public void decrement(int index) {
+        counts[index]--;
+        size--;
+    }
+
+    public void increment(int index) {
+        counts[index]++;
+        size++;
+        end = Math.max(end, index + 1);
+    }
+
+    /**
+     * {@code contains()} - Checks whether every letter of {@code other} is present in this {@code LetterCount}
+     * at least as many times
+     * @param other the letters to check for
+     * @return {@code true} if {@code other} can be subtracted from this {@code LetterCount}
+     */
+    public boolean contains(LetterCount other) {
+        if (other.size > size) return false;
+
+        for (int i = 0; i < other.end; i++)
+            if (other.counts[i] > counts[i]) return false;
+
+        return true;
+    }
+
+    /**
+     * {@code subtract()} - Removes the letters of {@code other} from this {@code LetterCount} in place. The caller
+     * is expected to have checked {@code contains()} first.
+     * @param other the letters to remove
+     */
+    public void subtract(LetterCount other) {
+        for (int i = 0; i < other.end; i++)
+            counts[i] -= other.counts[i];
+
+        size -= other.size;
+    }
+
+    /**
+     * {@code add()} - Adds the letters of {@code other} to this {@code LetterCount} in place, undoing a previous
+     * {@code subtract()}.
+     * @param other the letters to add
+     */
+    public void add(LetterCount other) {
+        for (int i = 0; i < other.end; i++)
+            counts[i] += other.counts[i];
+
+        size += other.size;
+        end = Math.max(end, other.end);
+    }
+
+    /**
+     * {@code toSortedString()} - Builds the letters and symbols in the order of their characters, the same form
+     * {@code Word.sortLetters()} produces for a word
+     * @return a {@code String} of the letters in sorted order
+     */
+    public String toSortedString() {
+        char[] letters = new char[size];
+        int pos = 0;
+
+        for (int i = 0; i < end; i++)
+            for (int j = 0; j < counts[i]; j++)
+                letters[pos++] = charOf(i);
+
+        // the letters are already in order but the symbols, which come after them, might belong anywhere
+        if (hasSymbols())
+            Arrays.sort(letters);
+
+        return String.valueOf(letters);
+    }
+
+    private boolean hasSymbols() {
+        for (int i = LETTERS; i < end; i++)
+            if (counts[i] > 0) return true;
+
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LetterCount)) return false;
+
+        LetterCount other = (LetterCount) o;
+
+        int slots = Math.max(end, other.end);
+
+        return size == other.size && Arrays.equals(counts, 0, slots, other.counts, 0, slots);
+    }
+
+    // XXX: hashed from the last slot down, the unused slots past the end add nothing however far the end is
+    @Override
+    public int hashCode() {
+        int hash = 0;
+
+        for (int i = end - 1; i >= 0; i--)
+            hash = 31 * hash + counts[i];
+
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toSortedString();
+    }
+
+}
@@ -10,6 +10,7 @@ import java.util.Objects;
  *
  * <ul>
  *     <li>{@code sortLetters()} - For sorting letters in the word.</li>
+ *     <li>{@code keyLength()} - For the length of the sorted letters without sorting them.</li>
  *     <li>{@code subtract()} - For subtracting the letters in one word from another.</li>
  *     <li>{@code generateSubStrings()} - For generating an exhaustive list of substrings from the word.</li>
  * </ul>
@@ -33,6 +34,28 @@ public final class Word {
         return String.valueOf(wordChars).trim();
     }
 
+    /**
+     * {@code keyLength()} - Gets the length {@code sortLetters()} would return for the word, without building it. The
+     * whitespace, which sorts first and is trimmed off, isn't counted.
+     * @param word the word
+     * @return the number of letters in the sorted letters of the {@code word}
+     */
+    public static int keyLength(String word) {
+        Objects.requireNonNull(word, "String object cannot be null");
+
+        int length = 0;
+
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+
+            // XXX: lower-casing can change the length of a word outside ASCII, e.g. a dotted capital I
+            if (c >= 0x80) return sortLetters(word).length();
+            if (c > ' ') length++;
+        }
+
+        return length;
+    }
+
     /**
      * {@code subtract()} - Subtract one substring from another larger string. If the entirety of the
      * smaller string can't be subtracted, returns the original string